@@ -0,0 +1,139 @@
+package attendance.bench;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// The application lives in the default package, which named packages cannot import, so the
+// benchmarks reach ExcelDataManager and the report calculation through method handles resolved once.
+final class DataLayer {
+
+    private static final MethodHandle SETUP_DATABASE = method("ExcelDataManager", "setupDatabase");
+    private static final MethodHandle FLUSH_PENDING_WRITES = method("ExcelDataManager", "flushPendingWrites");
+    private static final MethodHandle AUTHENTICATE_USER = method("ExcelDataManager", "authenticateUser", String.class, String.class);
+    private static final MethodHandle GET_USERS_BY_ROLE = method("ExcelDataManager", "getUsersByRole", String.class);
+    private static final MethodHandle GET_ALL_ATTENDANCE = method("ExcelDataManager", "getAllAttendance");
+    private static final MethodHandle MARK_ATTENDANCE = method("ExcelDataManager", "markAttendance", List.class, String.class, String.class);
+    private static final MethodHandle UPDATE_SINGLE_ATTENDANCE_RECORD = method("ExcelDataManager", "updateSingleAttendanceRecord",
+            String.class, String.class, String.class, String.class);
+    private static final MethodHandle CALCULATE_REPORT_DATA = method("BaseReportsPanel", "calculateReportData",
+            LocalDate.class, LocalDate.class, String.class);
+    private static final MethodHandle MAIN = method(null, "main", String[].class);
+    private static final MethodHandle STUDENT_ID = method("DatasetGenerator", "studentId", int.class);
+    private static final MethodHandle STUDENT_NAME = method("DatasetGenerator", "studentName", int.class);
+    private static final MethodHandle PASSWORD_FOR = method("DatasetGenerator", "passwordFor", String.class);
+    private static final MethodHandle SCHOOL_DAYS = method("DatasetGenerator", "schoolDays", LocalDate.class, int.class);
+    private static final MethodHandle NEW_ATTENDANCE_RECORD = constructor("AttendanceRecord", String.class, String.class, String.class, String.class);
+
+    static final String STUDENT = "Student";
+
+    private DataLayer() {
+    }
+
+    // Runs the application's dataset generator, AttendanceSystemUI --generate, with the given options
+    static void generate(String... options) {
+        String[] args = new String[options.length + 1];
+        args[0] = "--generate";
+        System.arraycopy(options, 0, args, 1, options.length);
+        invoke(MAIN, (Object) args);
+    }
+
+    static String studentId(int n) {
+        return (String) invoke(STUDENT_ID, n);
+    }
+
+    static String studentName(int n) {
+        return (String) invoke(STUDENT_NAME, n);
+    }
+
+    static String passwordFor(String userId) {
+        return (String) invoke(PASSWORD_FOR, userId);
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<LocalDate> schoolDays(LocalDate start, int count) {
+        return (List<LocalDate>) invoke(SCHOOL_DAYS, start, count);
+    }
+
+    // Opens the store in dir with the given engine ("xlsx" or "log"); once per JVM, as in the application
+    static void open(File dir, String storage) {
+        System.setProperty("attendance.dataDir", dir.getPath());
+        System.setProperty("attendance.storage", storage);
+        invoke(SETUP_DATABASE);
+    }
+
+    static void flushPendingWrites() {
+        invoke(FLUSH_PENDING_WRITES);
+    }
+
+    static Object authenticateUser(String username, String password) {
+        return invoke(AUTHENTICATE_USER, username, password);
+    }
+
+    static List<?> getUsersByRole(String role) {
+        return (List<?>) invoke(GET_USERS_BY_ROLE, role);
+    }
+
+    static List<?> getAllAttendance() {
+        return (List<?>) invoke(GET_ALL_ATTENDANCE);
+    }
+
+    static void markAttendance(List<Object> records, String date, String subject) {
+        invoke(MARK_ATTENDANCE, records, date, subject);
+    }
+
+    static void updateSingleAttendanceRecord(String studentId, String date, String subject, String status) {
+        invoke(UPDATE_SINGLE_ATTENDANCE_RECORD, studentId, date, subject, status);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, double[]> calculateReportData(LocalDate start, LocalDate end, String subjectFilter) {
+        return (Map<String, double[]>) invoke(CALCULATE_REPORT_DATA, start, end, subjectFilter);
+    }
+
+    static Object attendanceRecord(String studentId, String date, String status, String subject) {
+        return invoke(NEW_ATTENDANCE_RECORD, studentId, date, status, subject);
+    }
+
+    private static Object invoke(MethodHandle handle, Object... args) {
+        try {
+            return handle.invokeWithArguments(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static MethodHandle method(String nestedClass, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = nested(nestedClass).getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle constructor(String nestedClass, Class<?>... parameterTypes) {
+        try {
+            Constructor<?> constructor = nested(nestedClass).getDeclaredConstructor(parameterTypes);
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor)
+                    .asType(MethodType.methodType(Object.class, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // A null name is the application class itself
+    private static Class<?> nested(String name) throws ClassNotFoundException {
+        return Class.forName((name == null) ? "AttendanceSystemUI" : "AttendanceSystemUI$" + name);
+    }
+}
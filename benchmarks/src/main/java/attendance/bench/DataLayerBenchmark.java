@@ -0,0 +1,118 @@
+package attendance.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// The ExcelDataManager calls the UI makes, over a seeded dataset of students x termDays x 7 subjects
+// attendance rows. Each parameter combination runs in its own fork, because the store is opened once
+// per JVM. Run with: java -jar benchmarks/target/benchmarks.jar [-p students=5000 -p storage=log]
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataLayerBenchmark {
+
+    @Param({"200", "2000"})
+    public int students;
+
+    @Param({"60"})
+    public int termDays;
+
+    @Param({"xlsx", "log"})
+    public String storage;
+
+    @Param({"0.15"})
+    public double absenceRate;
+
+    @Param({"42"})
+    public long seed;
+
+    private Path dataDir;
+    private SyntheticDataset dataset;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("attendance-bench");
+        dataset = SyntheticDataset.generate(dataDir.toFile(), storage, students, termDays, absenceRate, seed);
+        DataLayer.open(dataDir.toFile(), storage);
+        random = new Random(seed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        DataLayer.flushPendingWrites();
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public List<?> getAllAttendance() {
+        return DataLayer.getAllAttendance();
+    }
+
+    @Benchmark
+    public List<?> getUsersByRole() {
+        return DataLayer.getUsersByRole(DataLayer.STUDENT);
+    }
+
+    // Re-marks an existing lecture, so the dataset keeps its size
+    @Benchmark
+    public void markAttendance() {
+        String date = randomDay().toString();
+        String subject = randomSubject();
+        DataLayer.markAttendance(dataset.lecture(date, subject, random, absenceRate), date, subject);
+    }
+
+    @Benchmark
+    public void updateSingleAttendanceRecord() {
+        DataLayer.updateSingleAttendanceRecord(dataset.studentIds.get(random.nextInt(students)), randomDay().toString(),
+                randomSubject(), random.nextBoolean() ? "Present" : "Absent");
+    }
+
+    @Benchmark
+    public Object authenticateUser() {
+        int student = random.nextInt(students);
+        return DataLayer.authenticateUser(dataset.studentNames.get(student), DataLayer.passwordFor(dataset.studentIds.get(student)));
+    }
+
+    // A four-week report over all subjects, as run from the Reports tab
+    @Benchmark
+    public Map<String, double[]> calculateReportData() {
+        LocalDate start = randomDay();
+        return DataLayer.calculateReportData(start, start.plusWeeks(4), "All Subjects");
+    }
+
+    private LocalDate randomDay() {
+        return dataset.days.get(random.nextInt(dataset.days.size()));
+    }
+
+    private String randomSubject() {
+        return SyntheticDataset.SUBJECTS[random.nextInt(SyntheticDataset.SUBJECTS.length)];
+    }
+}
@@ -0,0 +1,75 @@
+package attendance.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Logins per second, with several threads logging in at once as at the start of a class. Each thread
+// picks random students; every check runs one PBKDF2 hash against the account's stored hash.
+// Run with: java -jar benchmarks/target/benchmarks.jar LoginBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoginBenchmark {
+
+    @Param({"2000", "20000"})
+    public int students;
+
+    private Path dataDir;
+    private SyntheticDataset dataset;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("attendance-bench");
+        dataset = SyntheticDataset.generate(dataDir.toFile(), "log", students, 1, 0.1, 42);
+        DataLayer.open(dataDir.toFile(), "log");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public Object login() {
+        int student = ThreadLocalRandom.current().nextInt(students);
+        return DataLayer.authenticateUser(dataset.studentNames.get(student), DataLayer.passwordFor(dataset.studentIds.get(student)));
+    }
+
+    @Benchmark
+    public Object wrongPassword() {
+        int student = ThreadLocalRandom.current().nextInt(students);
+        return DataLayer.authenticateUser(dataset.studentNames.get(student), "not-the-password");
+    }
+
+    @Benchmark
+    public Object unknownUser() {
+        return DataLayer.authenticateUser("No Such Student", "not-the-password");
+    }
+}
@@ -0,0 +1,46 @@
+package attendance.bench;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// A seeded campus written by the application's own generator (AttendanceSystemUI --generate):
+// students, staff, and every subject marked for every student on each weekday of the term. The
+// same parameters and seed always produce the same store.
+final class SyntheticDataset {
+
+    // The generator's default subjects, SUBJECT_LIST
+    static final String[] SUBJECTS = {"General", "Math", "Physics", "Chemistry", "History", "English", "Biology"};
+    static final LocalDate TERM_START = LocalDate.of(2025, 1, 6);
+
+    final int students;
+    final List<String> studentIds = new ArrayList<>();
+    final List<String> studentNames = new ArrayList<>();
+    final List<LocalDate> days;
+
+    private SyntheticDataset(int students, int termDays) {
+        this.students = students;
+        this.days = DataLayer.schoolDays(TERM_START, termDays);
+        for (int n = 1; n <= students; n++) {
+            studentIds.add(DataLayer.studentId(n));
+            studentNames.add(DataLayer.studentName(n));
+        }
+    }
+
+    // Writes the dataset into dir in the given store format; call before DataLayer.open
+    static SyntheticDataset generate(File dir, String storage, int students, int termDays, double absenceRate, long seed) {
+        DataLayer.generate("--dir=" + dir.getPath(), "--storage=" + storage, "--students=" + students, "--term-days=" + termDays,
+                "--term-start=" + TERM_START, "--absence=" + absenceRate, "--seed=" + seed, "--force");
+        return new SyntheticDataset(students, termDays);
+    }
+
+    List<Object> lecture(String date, String subject, Random random, double absenceRate) {
+        List<Object> records = new ArrayList<>(students);
+        for (String id : studentIds) {
+            records.add(DataLayer.attendanceRecord(id, date, random.nextDouble() < absenceRate ? "Absent" : "Present", subject));
+        }
+        return records;
+    }
+}
@@ -2,11 +2,15 @@
 import com.formdev.flatlaf.themes.FlatMacLightLaf;
 
 // JCalendar (com.toedter) imports are now REMOVED
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 import javax.swing.*;
 import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.TableModelEvent;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.event.TableModelListener;
+import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellEditor;
@@ -32,13 +36,41 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener; // Specific import
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.SimpleDateFormat;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.time.DayOfWeek; // NEW import for calendar logic
 import java.time.LocalDate; // NEW import for calendar logic
 import java.time.YearMonth; // NEW import for calendar logic
@@ -47,21 +79,69 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.format.TextStyle; // NEW import for calendar logic
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale; // NEW import for calendar logic
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
-
-import org.apache.poi.ss.usermodel.Cell;
+import javax.xml.parsers.ParserConfigurationException;
+
+import com.zaxxer.sparsebits.SparseBitSet;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 public class AttendanceSystemUI {
 
@@ -70,6 +150,10 @@ public class AttendanceSystemUI {
 
     // --- Main Entry Point ---
     public static void main(String[] args) {
+        if (args.length > 0 && "--generate".equals(args[0])) {
+            DatasetGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         FlatMacLightLaf.setup();
 
         UIManager.put("Button.arc", 999);
@@ -150,6 +234,18 @@ public class AttendanceSystemUI {
         private final JPanel contentPanel = new JPanel(cardLayout);
         private User currentUser;
         private final SideNavPanel sideNavPanel;
+        private String currentPanel;
+        // Panels that could not apply a change as a delta and reload when next shown
+        private final Set<Component> stalePanels = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Consumer<DataChange> changeListener = this::dataChanged;
+        // Panels the role can reach, built on first showPanel (each constructor loads its data)
+        private final Map<String, Supplier<JComponent>> panelFactories = new HashMap<>();
+        private final Map<String, JComponent> builtPanels = new HashMap<>();
+        // A commit by another instance is looked for on a timer and when the window regains focus,
+        // and shows up as a RELOADED change; tab switches do no I/O
+        private static final int EXTERNAL_CHECK_MILLIS = 5000;
+        private final Timer externalCheckTimer = new Timer(EXTERNAL_CHECK_MILLIS, e -> checkForExternalChanges());
+        private boolean checkingExternal;
 
         MainFrame(User user) {
             this.currentUser = user;
@@ -166,6 +262,14 @@ public class AttendanceSystemUI {
 
             setupContentPanels();
             add(contentPanel, BorderLayout.CENTER);
+            DataChange.subscribe(changeListener);
+            addWindowFocusListener(new WindowAdapter() {
+                @Override
+                public void windowGainedFocus(WindowEvent e) {
+                    checkForExternalChanges();
+                }
+            });
+            externalCheckTimer.start();
 
             switch (currentUser.role) {
                 case "Admin":
@@ -181,29 +285,79 @@ public class AttendanceSystemUI {
         }
 
         private void setupContentPanels() {
-            contentPanel.add(new HomeDashboardPanel(this), "HomeDashboard");
-            contentPanel.add(new StaffAttendancePanel(this), "Staff");
-            contentPanel.add(new AdminPanel(this), "Admin");
-            contentPanel.add(new StudentDashboardPanel(this), "StudentDashboard");
-
-            if ("Admin".equals(currentUser.role)) {
-                contentPanel.add(new AdminReportsPanel(this), "Reports");
-            } else if ("Staff".equals(currentUser.role)) {
-                contentPanel.add(new StaffReportsPanel(this), "Reports");
+            switch (currentUser.role) {
+                case "Admin":
+                    panelFactories.put("HomeDashboard", () -> new HomeDashboardPanel(this));
+                    panelFactories.put("Admin", () -> new AdminPanel(this));
+                    panelFactories.put("Reports", () -> new AdminReportsPanel(this));
+                    break;
+                case "Staff":
+                    panelFactories.put("HomeDashboard", () -> new HomeDashboardPanel(this));
+                    panelFactories.put("Staff", () -> new StaffAttendancePanel(this));
+                    panelFactories.put("Reports", () -> new StaffReportsPanel(this));
+                    break;
+                case "Student":
+                    panelFactories.put("StudentDashboard", () -> new StudentDashboardPanel(this));
+                    break;
             }
         }
 
+        // Panels are kept current by change events, so showing one only reloads it if it went stale
         public void showPanel(String panelName) {
+            Supplier<JComponent> factory = panelFactories.get(panelName);
+            if (factory == null) {
+                return;
+            }
+            if (!builtPanels.containsKey(panelName)) {
+                JComponent panel = factory.get();
+                builtPanels.put(panelName, panel);
+                contentPanel.add(panel, panelName);
+            }
             cardLayout.show(contentPanel, panelName);
+            currentPanel = panelName;
+            refreshIfStale(panelName);
+        }
+
+        // At most one check in flight; the check itself only compares file stamps
+        private void checkForExternalChanges() {
+            if (checkingExternal) {
+                return;
+            }
+            checkingExternal = true;
+            DataAccess.read(() -> {
+                ExcelDataManager.checkForExternalChanges();
+                return null;
+            }).whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> checkingExternal = false));
+        }
+
+        private void dataChanged(DataChange change) {
             for (Component component : contentPanel.getComponents()) {
-                String compName = component.getClass().getSimpleName();
-                if ((compName.equals(panelName) || compName.equals(panelName + "Panel")) && component.isVisible()) {
-                    if (component instanceof Refreshable) {
-                        ((Refreshable) component).refreshData();
+                if (component instanceof Refreshable) {
+                    // A load still in flight may have read the data before this change
+                    boolean loading = component instanceof JComponent && DataAccess.isLoading((JComponent) component);
+                    if (loading || !((Refreshable) component).applyChange(change)) {
+                        stalePanels.add(component);
                     }
-                    break;
                 }
             }
+            if (currentPanel != null) {
+                refreshIfStale(currentPanel);
+            }
+        }
+
+        // Panels are found by the name they were built under; their class names need not match it
+        private void refreshIfStale(String panelName) {
+            JComponent panel = builtPanels.get(panelName);
+            if (panel instanceof Refreshable && panel.isVisible() && stalePanels.remove(panel)) {
+                ((Refreshable) panel).refreshData();
+            }
+        }
+
+        @Override
+        public void dispose() {
+            externalCheckTimer.stop();
+            DataChange.unsubscribe(changeListener);
+            super.dispose();
         }
 
         public User getCurrentUser() {
@@ -287,13 +441,14 @@ public class AttendanceSystemUI {
                 JOptionPane.showMessageDialog(this, "Fields cannot be empty.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-            User user = ExcelDataManager.authenticateUser(username, password);
-            if (user != null) {
-                dispose();
-                new MainFrame(user).setVisible(true);
-            } else {
-                JOptionPane.showMessageDialog(this, "Invalid credentials.", "Login Failed", JOptionPane.ERROR_MESSAGE);
-            }
+            DataAccess.load(getRootPane(), () -> ExcelDataManager.authenticateUser(username, password), user -> {
+                if (user != null) {
+                    dispose();
+                    new MainFrame(user).setVisible(true);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Invalid credentials.", "Login Failed", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         }
     }
 
@@ -484,7 +639,7 @@ public class AttendanceSystemUI {
             }
         }
 
-        public static JTable createModernTable(DefaultTableModel model) {
+        public static JTable createModernTable(TableModel model) {
             JTable table = new JTable(model);
             table.setRowHeight(45);
             table.setFont(AppStyles.FONT_NORMAL);
@@ -511,6 +666,98 @@ public class AttendanceSystemUI {
     interface Refreshable {
 
         void refreshData();
+
+        // Applies one committed change to what the panel shows. Returning false marks the panel stale:
+        // it is reloaded when next shown, or at once if it is on screen.
+        default boolean applyChange(DataChange change) {
+            return false;
+        }
+    }
+
+    // --- Data change notifications ---
+    // ExcelDataManager publishes one DataChange per committed mutation, and RELOADED when the store was
+    // replaced wholesale (import, or a commit by another instance). Listeners are called on the EDT.
+    static class DataChange {
+
+        enum Type {
+            USER_ADDED, USERS_ADDED, USER_REMOVED, PASSWORD_CHANGED, ATTENDANCE_MARKED, RECORD_UPDATED, RELOADED
+        }
+
+        private static final List<Consumer<DataChange>> LISTENERS = new CopyOnWriteArrayList<>();
+
+        final Type type;
+        final User user; // USER_ADDED, without its password
+        final String userId; // USER_REMOVED, PASSWORD_CHANGED, RECORD_UPDATED
+        final String date, subject, status; // ATTENDANCE_MARKED (date, subject), RECORD_UPDATED
+        final List<AttendanceRecord> records; // ATTENDANCE_MARKED: the lecture's new records
+        final List<User> users; // USERS_ADDED, without their passwords
+
+        private DataChange(Type type, User user, String userId, String date, String subject, String status, List<AttendanceRecord> records) {
+            this(type, user, userId, date, subject, status, records, null);
+        }
+
+        private DataChange(Type type, User user, String userId, String date, String subject, String status, List<AttendanceRecord> records,
+                           List<User> users) {
+            this.type = type;
+            this.user = user;
+            this.userId = userId;
+            this.date = date;
+            this.subject = subject;
+            this.status = status;
+            this.records = records;
+            this.users = users;
+        }
+
+        static DataChange userAdded(User user) {
+            return new DataChange(Type.USER_ADDED, new User(user.id, "", user.name, user.role, user.subject), user.id, null, null, null, null);
+        }
+
+        // A roster import: one change for the whole batch
+        static DataChange usersAdded(List<User> added) {
+            List<User> copies = new ArrayList<>(added.size());
+            for (User u : added) {
+                copies.add(new User(u.id, "", u.name, u.role, u.subject));
+            }
+            return new DataChange(Type.USERS_ADDED, null, null, null, null, null, null, Collections.unmodifiableList(copies));
+        }
+
+        static DataChange userRemoved(String userId) {
+            return new DataChange(Type.USER_REMOVED, null, userId, null, null, null, null);
+        }
+
+        static DataChange passwordChanged(String userId) {
+            return new DataChange(Type.PASSWORD_CHANGED, null, userId, null, null, null, null);
+        }
+
+        static DataChange attendanceMarked(String date, String subject, List<AttendanceRecord> records) {
+            List<AttendanceRecord> copies = new ArrayList<>();
+            for (AttendanceRecord r : records) {
+                copies.add(new AttendanceRecord(r.studentId, r.date, r.status, r.subject));
+            }
+            return new DataChange(Type.ATTENDANCE_MARKED, null, null, date, subject, null, Collections.unmodifiableList(copies));
+        }
+
+        static DataChange recordUpdated(String studentId, String date, String subject, String status) {
+            return new DataChange(Type.RECORD_UPDATED, null, studentId, date, subject, status, null);
+        }
+
+        static DataChange reloaded() {
+            return new DataChange(Type.RELOADED, null, null, null, null, null, null);
+        }
+
+        static void subscribe(Consumer<DataChange> listener) {
+            LISTENERS.add(listener);
+        }
+
+        static void unsubscribe(Consumer<DataChange> listener) {
+            LISTENERS.remove(listener);
+        }
+
+        static void publish(DataChange change) {
+            if (!LISTENERS.isEmpty()) {
+                SwingUtilities.invokeLater(() -> LISTENERS.forEach(listener -> listener.accept(change)));
+            }
+        }
     }
 
     // --- Admin/Staff Home Dashboard Panel ---
@@ -544,24 +791,52 @@ public class AttendanceSystemUI {
 
         @Override
         public void refreshData() {
-            statsPanel.removeAll();
             if ("Admin".equals(currentUser.role)) {
-                List<User> students = ExcelDataManager.getUsersByRole("Student");
-                List<User> staff = ExcelDataManager.getUsersByRole("Staff");
-                Map<String, Double> todayStats = ExcelDataManager.getOverallAttendanceForToday();
-                statsPanel.add(CustomComponents.createStatCard("Total Students", String.valueOf(students.size()), "🎓", AppStyles.PRIMARY_COLOR));
-                statsPanel.add(CustomComponents.createStatCard("Total Staff", String.valueOf(staff.size()), "👤", AppStyles.ORANGE));
-                statsPanel.add(CustomComponents.createStatCard("Total Lectures Today", String.valueOf(todayStats.get("total").intValue()), "📚", AppStyles.GREEN));
-                statsPanel.add(CustomComponents.createStatCard("Overall Absent Today", String.valueOf(todayStats.get("absent").intValue()), "❌", AppStyles.RED));
+                DataAccess.load(this, () -> {
+                    Map<String, Double> todayStats = ExcelDataManager.getOverallAttendanceForToday();
+                    todayStats.put("students", (double) ExcelDataManager.getUsersByRole("Student").size());
+                    todayStats.put("staff", (double) ExcelDataManager.getUsersByRole("Staff").size());
+                    return todayStats;
+                }, todayStats -> {
+                    statsPanel.removeAll();
+                    statsPanel.add(CustomComponents.createStatCard("Total Students", String.valueOf(todayStats.get("students").intValue()), "🎓", AppStyles.PRIMARY_COLOR));
+                    statsPanel.add(CustomComponents.createStatCard("Total Staff", String.valueOf(todayStats.get("staff").intValue()), "👤", AppStyles.ORANGE));
+                    statsPanel.add(CustomComponents.createStatCard("Total Lectures Today", String.valueOf(todayStats.get("total").intValue()), "📚", AppStyles.GREEN));
+                    statsPanel.add(CustomComponents.createStatCard("Overall Absent Today", String.valueOf(todayStats.get("absent").intValue()), "❌", AppStyles.RED));
+                    statsPanel.revalidate();
+                    statsPanel.repaint();
+                });
             } else if ("Staff".equals(currentUser.role)) {
-                Map<String, Double> subjectStats = ExcelDataManager.getOverallAttendanceForToday(currentUser.subject);
-                statsPanel.add(CustomComponents.createStatCard("My Assigned Subject", currentUser.subject, "📚", AppStyles.PRIMARY_COLOR));
-                statsPanel.add(CustomComponents.createStatCard("Att. % (My Subject)", String.format("%.0f%%", subjectStats.get("percentage")), "📈", AppStyles.GREEN));
-                statsPanel.add(CustomComponents.createStatCard("Total Lectures (My Subject)", String.valueOf(subjectStats.get("total").intValue()), "✍️", AppStyles.ORANGE));
-                statsPanel.add(CustomComponents.createStatCard("Absent (My Subject)", String.valueOf(subjectStats.get("absent").intValue()), "❌", AppStyles.RED));
+                DataAccess.load(this, () -> ExcelDataManager.getOverallAttendanceForToday(currentUser.subject), subjectStats -> {
+                    statsPanel.removeAll();
+                    statsPanel.add(CustomComponents.createStatCard("My Assigned Subject", currentUser.subject, "📚", AppStyles.PRIMARY_COLOR));
+                    statsPanel.add(CustomComponents.createStatCard("Att. % (My Subject)", String.format("%.0f%%", subjectStats.get("percentage")), "📈", AppStyles.GREEN));
+                    statsPanel.add(CustomComponents.createStatCard("Total Lectures (My Subject)", String.valueOf(subjectStats.get("total").intValue()), "✍️", AppStyles.ORANGE));
+                    statsPanel.add(CustomComponents.createStatCard("Absent (My Subject)", String.valueOf(subjectStats.get("absent").intValue()), "❌", AppStyles.RED));
+                    statsPanel.revalidate();
+                    statsPanel.repaint();
+                });
+            }
+        }
+
+        // The cards are aggregates; they are recomputed only for changes that can move them
+        @Override
+        public boolean applyChange(DataChange change) {
+            boolean admin = "Admin".equals(currentUser.role);
+            switch (change.type) {
+                case PASSWORD_CHANGED:
+                    return true;
+                case USER_ADDED:
+                case USERS_ADDED:
+                case USER_REMOVED:
+                    return !admin;
+                case ATTENDANCE_MARKED:
+                case RECORD_UPDATED:
+                    boolean today = LocalDate.now().format(GLOBAL_DATE_FORMATTER).equals(change.date);
+                    return !today || !(admin || currentUser.subject.equals(change.subject));
+                default:
+                    return false;
             }
-            statsPanel.revalidate();
-            statsPanel.repaint();
         }
     }
 
@@ -669,13 +944,18 @@ public class AttendanceSystemUI {
             if (dateStr == null) {
                 return;
             }
-            tableModel.setRowCount(0);
-            List<User> students = ExcelDataManager.getUsersByRole("Student");
-            for (User student : students) {
-                String status = ExcelDataManager.getStudentStatusForDate(student.id, dateStr, this.assignedSubject);
-                tableModel.addRow(new Object[]{student.id, student.name, status});
-            }
-            updateStats();
+            DataAccess.load(this, () -> {
+                List<Object[]> rows = new ArrayList<>();
+                Map<String, String> statuses = ExcelDataManager.getStatusesForLecture(dateStr, this.assignedSubject);
+                for (User student : ExcelDataManager.getUsersByRole("Student")) {
+                    rows.add(new Object[]{student.id, student.name, statuses.getOrDefault(student.id, "Absent")});
+                }
+                return rows;
+            }, rows -> {
+                tableModel.setRowCount(0);
+                rows.forEach(tableModel::addRow);
+                updateStats();
+            });
         }
 
         @Override
@@ -684,6 +964,28 @@ public class AttendanceSystemUI {
             loadRosterForAssignedSubject();
         }
 
+        // The roster is a working copy being marked, so only roster membership follows other changes
+        @Override
+        public boolean applyChange(DataChange change) {
+            if (change.type == DataChange.Type.USER_ADDED && "Student".equalsIgnoreCase(change.user.role)) {
+                tableModel.addRow(new Object[]{change.user.id, change.user.name, "Absent"});
+                updateStats();
+            } else if (change.type == DataChange.Type.USERS_ADDED) {
+                change.users.stream().filter(u -> "Student".equalsIgnoreCase(u.role))
+                        .forEach(u -> tableModel.addRow(new Object[]{u.id, u.name, "Absent"}));
+                updateStats();
+            } else if (change.type == DataChange.Type.USER_REMOVED) {
+                for (int i = 0; i < tableModel.getRowCount(); i++) {
+                    if (change.userId.equalsIgnoreCase((String) tableModel.getValueAt(i, 0))) {
+                        tableModel.removeRow(i);
+                        updateStats();
+                        break;
+                    }
+                }
+            }
+            return change.type != DataChange.Type.RELOADED;
+        }
+
         private void updateStats() {
             int present = 0, absent = 0;
             for (int i = 0; i < tableModel.getRowCount(); i++) {
@@ -721,14 +1023,169 @@ public class AttendanceSystemUI {
             for (int i = 0; i < tableModel.getRowCount(); i++) {
                 records.add(new AttendanceRecord((String) tableModel.getValueAt(i, 0), dateStr, (String) tableModel.getValueAt(i, 2), this.assignedSubject));
             }
-            if (ExcelDataManager.hasAttendanceBeenMarked(dateStr, this.assignedSubject)) {
-                int choice = JOptionPane.showConfirmDialog(this, "Overwrite attendance for '" + this.assignedSubject + "' on " + dateStr + "?", "Confirm Overwrite", JOptionPane.YES_NO_OPTION);
-                if (choice == JOptionPane.NO_OPTION) {
-                    return;
+            DataAccess.load(this, () -> ExcelDataManager.hasAttendanceBeenMarked(dateStr, this.assignedSubject), alreadyMarked -> {
+                if (alreadyMarked) {
+                    int choice = JOptionPane.showConfirmDialog(this, "Overwrite attendance for '" + this.assignedSubject + "' on " + dateStr + "?", "Confirm Overwrite", JOptionPane.YES_NO_OPTION);
+                    if (choice == JOptionPane.NO_OPTION) {
+                        return;
+                    }
+                }
+                DataAccess.save(this, () -> ExcelDataManager.markAttendance(records, dateStr, this.assignedSubject),
+                        () -> JOptionPane.showMessageDialog(this, "Attendance for " + this.assignedSubject + " on " + dateStr + " saved successfully!", "Success", JOptionPane.INFORMATION_MESSAGE));
+            });
+        }
+    }
+
+    // --- Attendance Grid Model ---
+    // Serves cells straight from an AttendanceTable.RowView instead of copying rows into Vectors, so
+    // the raw data grid stays light at hundreds of thousands of rows: a reload is one view swap and a
+    // single fireTableDataChanged, and only the rows being painted are ever decoded to strings.
+    static class AttendanceTableModel extends AbstractTableModel {
+
+        static final int STUDENT_ID = 0, NAME = 1, DATE = 2, SUBJECT = 3, STATUS = 4;
+        private static final String[] COLUMN_NAMES = {"Student ID", "Name", "Date", "Subject", "Status"};
+
+        private final int[] columns;
+        private final boolean statusEditable;
+        private AttendanceTable.RowView view = AttendanceTable.RowView.EMPTY;
+        private String[] names = new String[0]; // by student code
+        private int[] visibleRows; // positions in the view, or null when every row is shown
+        // Built on first lookup: each student code's view positions, ascending, and the codes per
+        // upper-cased student ID
+        private AttendanceTable.IntList[] rowsByCode;
+        private Map<String, AttendanceTable.IntList> codesById;
+
+        AttendanceTableModel(boolean statusEditable, int... columns) {
+            this.statusEditable = statusEditable;
+            this.columns = columns;
+        }
+
+        // names is indexed by the view's student codes and may be empty when there is no Name column
+        void setView(AttendanceTable.RowView view, String[] names) {
+            this.view = view;
+            this.names = names;
+            this.visibleRows = null;
+            this.rowsByCode = null;
+            this.codesById = null;
+            fireTableDataChanged();
+        }
+
+        // Shows only the rows of one subject; null shows them all
+        void filterBySubject(String subject) {
+            if (subject == null) {
+                visibleRows = null;
+            } else {
+                int[] rows = new int[view.size()];
+                int count = 0;
+                for (int i = 0; i < view.size(); i++) {
+                    if (view.subject(i).equals(subject)) {
+                        rows[count++] = i;
+                    }
+                }
+                visibleRows = Arrays.copyOf(rows, count);
+            }
+            fireTableDataChanged();
+        }
+
+        void setStudentName(String studentId, String name) {
+            AttendanceTable.IntList codes = index().get(AttendanceTable.studentKey(studentId));
+            if (codes != null && names.length > 0) {
+                for (int c = 0; c < codes.size(); c++) {
+                    names[codes.get(c)] = name;
+                }
+                fireTableRowsUpdated(0, getRowCount() - 1);
+            }
+        }
+
+        // First row of the lecture for the student, or -1
+        int findRow(String studentId, String date, String subject) {
+            AttendanceTable.IntList codes = index().get(AttendanceTable.studentKey(studentId));
+            if (codes == null) {
+                return -1;
+            }
+            for (int c = 0; c < codes.size(); c++) {
+                AttendanceTable.IntList rows = rowsByCode[codes.get(c)];
+                if (rows == null || !view.studentIdOf(codes.get(c)).equals(studentId)) {
+                    continue;
+                }
+                for (int r = 0; r < rows.size(); r++) {
+                    int i = rows.get(r);
+                    if (view.date(i).equals(date) && view.subject(i).equals(subject)) {
+                        int row = (visibleRows != null) ? Arrays.binarySearch(visibleRows, i) : i;
+                        if (row >= 0) {
+                            return row;
+                        }
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private Map<String, AttendanceTable.IntList> index() {
+            if (codesById == null) {
+                rowsByCode = new AttendanceTable.IntList[view.studentCount()];
+                codesById = new HashMap<>();
+                for (int code = 0; code < rowsByCode.length; code++) {
+                    codesById.computeIfAbsent(AttendanceTable.studentKey(view.studentIdOf(code)), k -> new AttendanceTable.IntList()).add(code);
+                }
+                for (int i = 0; i < view.size(); i++) {
+                    int code = view.studentCode(i);
+                    if (rowsByCode[code] == null) {
+                        rowsByCode[code] = new AttendanceTable.IntList();
+                    }
+                    rowsByCode[code].add(i);
                 }
             }
-            ExcelDataManager.markAttendance(records, dateStr, this.assignedSubject);
-            JOptionPane.showMessageDialog(this, "Attendance for " + this.assignedSubject + " on " + dateStr + " saved successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+            return codesById;
+        }
+
+        @Override
+        public int getRowCount() {
+            return (visibleRows != null) ? visibleRows.length : view.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[columns[column]];
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return statusEditable && columns[column] == STATUS;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            int i = viewRow(row);
+            switch (columns[column]) {
+                case STUDENT_ID:
+                    return view.studentId(i);
+                case NAME:
+                    return names[view.studentCode(i)];
+                case DATE:
+                    return view.date(i);
+                case SUBJECT:
+                    return view.subject(i);
+                default:
+                    return view.status(i);
+            }
+        }
+
+        @Override
+        public void setValueAt(Object value, int row, int column) {
+            if (columns[column] == STATUS && !value.equals(getValueAt(row, column))) {
+                view.setStatus(viewRow(row), (String) value);
+                fireTableCellUpdated(row, column);
+            }
+        }
+
+        private int viewRow(int row) {
+            return (visibleRows != null) ? visibleRows[row] : row;
         }
     }
 
@@ -736,7 +1193,8 @@ public class AttendanceSystemUI {
     static class AdminPanel extends JPanel implements Refreshable {
 
         private final JTable studentTable, staffTable, reportTable;
-        private final DefaultTableModel studentModel, staffModel, reportModel;
+        private final DefaultTableModel studentModel, staffModel;
+        private final AttendanceTableModel reportModel;
         private boolean isUpdatingByCode = false; // NEW: Flag to prevent event loops
 
         AdminPanel(MainFrame frame) {
@@ -756,7 +1214,7 @@ public class AttendanceSystemUI {
                 }
             };
             studentTable = CustomComponents.createModernTable(studentModel);
-            tabbedPane.addTab("Manage Students", createManagementPanel(studentTable, "Student", frame, this::refreshData));
+            tabbedPane.addTab("Manage Students", createManagementPanel(studentTable, "Student", frame));
 
             staffModel = new DefaultTableModel(new String[]{"ID", "Name", "Role", "Assigned Subject"}, 0) {
                 @Override
@@ -765,14 +1223,11 @@ public class AttendanceSystemUI {
                 }
             };
             staffTable = CustomComponents.createModernTable(staffModel);
-            tabbedPane.addTab("Manage Staff", createManagementPanel(staffTable, "Staff", frame, this::refreshData));
+            tabbedPane.addTab("Manage Staff", createManagementPanel(staffTable, "Staff", frame));
 
-            reportModel = new DefaultTableModel(new String[]{"Student ID", "Name", "Date", "Subject", "Status"}, 0) {
-                @Override
-                public boolean isCellEditable(int row, int column) {
-                    return column == 4;
-                } // Only Status (col 4) is editable
-            };
+            // Only Status (col 4) is editable
+            reportModel = new AttendanceTableModel(true, AttendanceTableModel.STUDENT_ID, AttendanceTableModel.NAME,
+                    AttendanceTableModel.DATE, AttendanceTableModel.SUBJECT, AttendanceTableModel.STATUS);
             reportTable = CustomComponents.createModernTable(reportModel);
 
             JComboBox<String> statusComboBox = new JComboBox<>(new String[]{"Present", "Absent"});
@@ -792,32 +1247,82 @@ public class AttendanceSystemUI {
                     String subject = (String) reportModel.getValueAt(row, 3);
                     String newStatus = (String) reportModel.getValueAt(row, 4);
 
-                    new Thread(() -> { // Run Excel save on a background thread
-                        ExcelDataManager.updateSingleAttendanceRecord(studentId, date, subject, newStatus);
-                        SwingUtilities.invokeLater(() -> System.out.println("Updated record for " + studentId + " on " + date));
-                    }).start();
+                    DataAccess.save(reportTable, () -> ExcelDataManager.updateSingleAttendanceRecord(studentId, date, subject, newStatus),
+                            () -> System.out.println("Updated record for " + studentId + " on " + date));
                 }
             });
 
-            tabbedPane.addTab("Raw Attendance Data (Editable Status)", new JScrollPane(reportTable));
+            JPanel rawDataPanel = new JPanel(new BorderLayout(10, 10));
+            rawDataPanel.add(new JScrollPane(reportTable), BorderLayout.CENTER);
+            JPanel rawActionsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            JButton exportWorkbookButton = new JButton("Export to Excel");
+            exportWorkbookButton.setFont(AppStyles.FONT_BOLD);
+            exportWorkbookButton.addActionListener(e -> exportWorkbook(frame));
+            JButton importWorkbookButton = new JButton("Import from Excel");
+            importWorkbookButton.setFont(AppStyles.FONT_BOLD);
+            importWorkbookButton.addActionListener(e -> importWorkbook(frame));
+            rawActionsPanel.add(importWorkbookButton);
+            rawActionsPanel.add(exportWorkbookButton);
+            rawDataPanel.add(rawActionsPanel, BorderLayout.SOUTH);
+            tabbedPane.addTab("Raw Attendance Data (Editable Status)", rawDataPanel);
             add(tabbedPane, BorderLayout.CENTER);
             refreshData();
         }
 
-        private JPanel createManagementPanel(JTable table, String role, Frame owner, Runnable refreshCallback) {
+        // Full users + attendance export in the college_data.xlsx layout, whichever engine is active
+        private void exportWorkbook(Frame owner) {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setDialogTitle("Export Data as Excel Workbook");
+            fileChooser.setSelectedFile(new File("college_data_export_" + LocalDate.now().format(GLOBAL_DATE_FORMATTER) + ".xlsx"));
+            if (fileChooser.showSaveDialog(owner) == JFileChooser.APPROVE_OPTION) {
+                File file = fileChooser.getSelectedFile();
+                // Queued behind pending writes so the export includes them
+                DataAccess.save(this, () -> {
+                    try {
+                        ExcelDataManager.exportToXlsx(file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, () -> JOptionPane.showMessageDialog(owner, "Data exported successfully!", "Export Success", JOptionPane.INFORMATION_MESSAGE));
+            }
+        }
+
+        // Replaces all users and attendance with a workbook in the college_data.xlsx layout (for example
+        // an earlier export); every panel reloads from the RELOADED change that follows
+        private void importWorkbook(Frame owner) {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setDialogTitle("Import Data from Excel Workbook");
+            fileChooser.setFileFilter(new FileNameExtensionFilter("Excel workbook (*.xlsx)", "xlsx"));
+            if (fileChooser.showOpenDialog(owner) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            File file = fileChooser.getSelectedFile();
+            int confirm = JOptionPane.showConfirmDialog(owner, "Replace ALL users and attendance with the contents of " + file.getName() + "?\nThis cannot be undone; export the current data first if you may need it.",
+                    "Confirm Import", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+            if (confirm == JOptionPane.YES_OPTION) {
+                DataAccess.save(this, () -> ExcelDataManager.importFromXlsx(file),
+                        () -> JOptionPane.showMessageDialog(owner, "Data imported successfully!", "Import Success", JOptionPane.INFORMATION_MESSAGE));
+            }
+        }
+
+        // The tables pick up adds and removals from the resulting change events
+        private JPanel createManagementPanel(JTable table, String role, Frame owner) {
             JPanel panel = new JPanel(new BorderLayout(10, 10));
             panel.add(new JScrollPane(table), BorderLayout.CENTER);
             JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
             JButton addButton = new JButton("➕ Add New " + role);
+            JButton importButton = new JButton("📥 Import from File");
             JButton removeButton = new JButton("❌ Remove Selected");
             JButton setPasswordButton = new JButton("🔑 Set Password");
             addButton.setFont(AppStyles.FONT_BOLD);
+            importButton.setFont(AppStyles.FONT_BOLD);
             removeButton.setFont(AppStyles.FONT_BOLD);
             setPasswordButton.setFont(AppStyles.FONT_BOLD);
             addButton.setBackground(AppStyles.GREEN);
             addButton.setForeground(Color.WHITE);
             setPasswordButton.setBackground(AppStyles.ORANGE);
-            addButton.addActionListener(e -> new AddUserDialog(owner, role, refreshCallback).setVisible(true));
+            addButton.addActionListener(e -> new AddUserDialog(owner, role).setVisible(true));
+            importButton.addActionListener(e -> new ImportUsersDialog(owner, role).setVisible(true));
             removeButton.addActionListener(e -> {
                 int selectedRow = table.getSelectedRow();
                 if (selectedRow != -1) {
@@ -825,8 +1330,8 @@ public class AttendanceSystemUI {
                     String name = (String) table.getModel().getValueAt(table.convertRowIndexToModel(selectedRow), 1);
                     int confirm = JOptionPane.showConfirmDialog(this, "Remove user: " + name + " (ID: " + id + ")?", "Confirm Deletion", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
                     if (confirm == JOptionPane.YES_OPTION) {
-                        ExcelDataManager.removeUser(id);
-                        refreshCallback.run();
+                        DataAccess.save(this, () -> ExcelDataManager.removeUser(id), () -> {
+                        });
                     }
                 } else {
                     JOptionPane.showMessageDialog(this, "Please select a user to remove.", "Warning", JOptionPane.WARNING_MESSAGE);
@@ -839,8 +1344,8 @@ public class AttendanceSystemUI {
                     String name = (String) table.getModel().getValueAt(table.convertRowIndexToModel(selectedRow), 1);
                     String newPassword = JOptionPane.showInputDialog(this, "Enter new password for " + name + " (ID: " + id + "):", "Set New Password", JOptionPane.PLAIN_MESSAGE);
                     if (newPassword != null && !newPassword.trim().isEmpty()) {
-                        ExcelDataManager.updatePassword(id, newPassword.trim());
-                        JOptionPane.showMessageDialog(this, "Password for " + name + " updated successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        DataAccess.save(this, () -> ExcelDataManager.updatePassword(id, newPassword.trim()),
+                                () -> JOptionPane.showMessageDialog(this, "Password for " + name + " updated successfully.", "Success", JOptionPane.INFORMATION_MESSAGE));
                     } else if (newPassword != null) {
                         JOptionPane.showMessageDialog(this, "Password cannot be empty.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
@@ -849,6 +1354,7 @@ public class AttendanceSystemUI {
                 }
             });
             buttonPanel.add(addButton);
+            buttonPanel.add(importButton);
             buttonPanel.add(setPasswordButton);
             buttonPanel.add(removeButton);
             panel.add(buttonPanel, BorderLayout.SOUTH);
@@ -857,29 +1363,95 @@ public class AttendanceSystemUI {
 
         @Override
         public void refreshData() {
-            isUpdatingByCode = true; // Set flag
-            studentModel.setRowCount(0);
-            ExcelDataManager.getUsersByRole("Student").forEach(u -> studentModel.addRow(new Object[]{u.id, u.name, u.role}));
-            staffModel.setRowCount(0);
-            ExcelDataManager.getUsersByRole("Staff").forEach(u -> staffModel.addRow(new Object[]{u.id, u.name, u.role, u.subject}));
-            reportModel.setRowCount(0);
-            ExcelDataManager.getAllAttendance().forEach(r -> {
-                User student = ExcelDataManager.getUserById(r.studentId);
-                reportModel.addRow(new Object[]{r.studentId, student != null ? student.name : "N/A", r.date, r.subject, r.status});
+            DataAccess.load(this, () -> {
+                Map<String, List<Object[]>> rows = new HashMap<>();
+                rows.put("Student", ExcelDataManager.getUsersByRole("Student").stream()
+                        .map(u -> new Object[]{u.id, u.name, u.role}).collect(Collectors.toList()));
+                rows.put("Staff", ExcelDataManager.getUsersByRole("Staff").stream()
+                        .map(u -> new Object[]{u.id, u.name, u.role, u.subject}).collect(Collectors.toList()));
+                AttendanceTable.RowView attendance = ExcelDataManager.getAttendanceView();
+                return new AdminData(rows, attendance, attendance.studentNames(ExcelDataManager.getUsersById()));
+            }, data -> {
+                isUpdatingByCode = true; // Set flag
+                studentModel.setRowCount(0);
+                data.userRows.get("Student").forEach(studentModel::addRow);
+                staffModel.setRowCount(0);
+                data.userRows.get("Staff").forEach(staffModel::addRow);
+                reportModel.setView(data.attendance, data.studentNames);
+                isUpdatingByCode = false; // Release flag
             });
-            isUpdatingByCode = false; // Release flag
+        }
+
+        @Override
+        public boolean applyChange(DataChange change) {
+            isUpdatingByCode = true;
+            try {
+                switch (change.type) {
+                    case USER_ADDED:
+                        if ("Student".equalsIgnoreCase(change.user.role)) {
+                            studentModel.addRow(new Object[]{change.user.id, change.user.name, "Student"});
+                        } else if ("Staff".equalsIgnoreCase(change.user.role)) {
+                            staffModel.addRow(new Object[]{change.user.id, change.user.name, "Staff", change.user.subject});
+                        }
+                        reportModel.setStudentName(change.user.id, change.user.name);
+                        return true;
+                    case USER_REMOVED:
+                        if (!removeFirstRow(studentModel, change.userId)) {
+                            removeFirstRow(staffModel, change.userId);
+                        }
+                        reportModel.setStudentName(change.userId, "N/A");
+                        return true;
+                    case PASSWORD_CHANGED:
+                        return true;
+                    case RECORD_UPDATED:
+                        int row = reportModel.findRow(change.userId, change.date, change.subject);
+                        if (row >= 0) {
+                            reportModel.setValueAt(change.status, row, 4);
+                        }
+                        return true;
+                    default:
+                        // A marked lecture, a roster import or a reload takes a fresh view; that copies columns, it does no I/O
+                        return false;
+                }
+            } finally {
+                isUpdatingByCode = false;
+            }
+        }
+
+        private static boolean removeFirstRow(DefaultTableModel model, String id) {
+            for (int i = 0; i < model.getRowCount(); i++) {
+                if (id.equalsIgnoreCase((String) model.getValueAt(i, 0))) {
+                    model.removeRow(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // User table rows plus the attendance view and its names, loaded together off the EDT
+        private static class AdminData {
+
+            final Map<String, List<Object[]>> userRows;
+            final AttendanceTable.RowView attendance;
+            final String[] studentNames;
+
+            AdminData(Map<String, List<Object[]>> userRows, AttendanceTable.RowView attendance, String[] studentNames) {
+                this.userRows = userRows;
+                this.attendance = attendance;
+                this.studentNames = studentNames;
+            }
         }
     }
 
     // --- STUDENT DASHBOARD (NEW LAYOUT) ---
     static class StudentDashboardPanel extends JPanel implements Refreshable {
 
-        private final DefaultTableModel historyTableModel, subjectSummaryModel;
+        private final DefaultTableModel subjectSummaryModel;
+        private final AttendanceTableModel historyTableModel;
         private final JPanel statsPanel = new JPanel(new GridLayout(1, 4, 20, 20));
         private final MainFrame mainFrame;
         private final JLabel lowAttendanceWarning;
         private final JComboBox<String> historyFilterDropdown;
-        private List<AttendanceRecord> allStudentRecords = new ArrayList<>();
 
         StudentDashboardPanel(MainFrame frame) {
             this.mainFrame = frame;
@@ -941,12 +1513,7 @@ public class AttendanceSystemUI {
             historyToolbar.add(historyFilterDropdown);
             historyPanel.add(historyToolbar, BorderLayout.NORTH);
 
-            historyTableModel = new DefaultTableModel(new String[]{"Date", "Subject", "Status"}, 0) {
-                @Override
-                public boolean isCellEditable(int r, int c) {
-                    return false;
-                }
-            };
+            historyTableModel = new AttendanceTableModel(false, AttendanceTableModel.DATE, AttendanceTableModel.SUBJECT, AttendanceTableModel.STATUS);
             JTable historyTable = CustomComponents.createModernTable(historyTableModel);
             historyTable.getColumnModel().getColumn(2).setCellRenderer(new CustomComponents.StatusCellRenderer());
             historyPanel.add(new JScrollPane(historyTable), BorderLayout.CENTER);
@@ -964,36 +1531,26 @@ public class AttendanceSystemUI {
         }
 
         private void populateHistoryTable() {
-            historyTableModel.setRowCount(0);
             String filter = (String) historyFilterDropdown.getSelectedItem();
-            boolean showAll = "All Subjects".equals(filter);
-            for (AttendanceRecord r : allStudentRecords) {
-                if (showAll || r.subject.equals(filter)) {
-                    historyTableModel.addRow(new Object[]{r.date, r.subject, r.status});
-                }
-            }
+            historyTableModel.filterBySubject("All Subjects".equals(filter) ? null : filter);
         }
 
         public void refreshData(User currentUser) {
+            DataAccess.load(this, () -> new StudentAttendance(ExcelDataManager.getAttendanceViewForStudent(currentUser.id),
+                    ExcelDataManager.getSubjectTotalsForStudent(currentUser.id)), this::showStudentRecords);
+        }
+
+        private void showStudentRecords(StudentAttendance attendance) {
             subjectSummaryModel.setRowCount(0);
-            allStudentRecords = ExcelDataManager.getAttendanceForStudent(currentUser.id);
+            historyTableModel.setView(attendance.records, new String[0]);
             populateHistoryTable();
 
             int overallPresent = 0, overallAbsent = 0;
             boolean atRiskFlag = false;
-            Map<String, int[]> subjectSummaryData = new LinkedHashMap<>();
-            for (AttendanceRecord r : allStudentRecords) {
-                if ("Present".equals(r.status)) {
-                    overallPresent++;
-                } else {
-                    overallAbsent++;
-                }
-                int[] counts = subjectSummaryData.computeIfAbsent(r.subject, k -> new int[2]);
-                if ("Present".equals(r.status)) {
-                    counts[0]++;
-                } else {
-                    counts[1]++;
-                }
+            Map<String, int[]> subjectSummaryData = attendance.subjectTotals;
+            for (int[] counts : subjectSummaryData.values()) {
+                overallPresent += counts[0];
+                overallAbsent += counts[1];
             }
             int overallTotal = overallPresent + overallAbsent;
             double overallPercentage = (overallTotal == 0) ? 100.0 : ((double) overallPresent / overallTotal) * 100.0;
@@ -1025,6 +1582,34 @@ public class AttendanceSystemUI {
         public void refreshData() {
             refreshData(mainFrame.getCurrentUser());
         }
+
+        // Only this student's attendance is shown; other changes leave the panel as it is
+        @Override
+        public boolean applyChange(DataChange change) {
+            String studentId = mainFrame.getCurrentUser().id;
+            switch (change.type) {
+                case ATTENDANCE_MARKED:
+                    return change.records.stream().noneMatch(r -> r.studentId.equalsIgnoreCase(studentId));
+                case RECORD_UPDATED:
+                    return !change.userId.equalsIgnoreCase(studentId);
+                case RELOADED:
+                    return false;
+                default:
+                    return true;
+            }
+        }
+
+        // History rows plus per-subject {present, absent} totals, loaded together off the EDT
+        private static class StudentAttendance {
+
+            final AttendanceTable.RowView records;
+            final Map<String, int[]> subjectTotals;
+
+            StudentAttendance(AttendanceTable.RowView records, Map<String, int[]> subjectTotals) {
+                this.records = records;
+                this.subjectTotals = subjectTotals;
+            }
+        }
     }
 
     // --- BASE Reports Panel ---
@@ -1140,7 +1725,13 @@ public class AttendanceSystemUI {
             return atRiskPanel;
         }
 
-        protected Map<String, double[]> calculateReportData(LocalDate start, LocalDate end, String subjectFilter) throws IllegalArgumentException {
+        protected static Map<String, double[]> calculateReportData(LocalDate start, LocalDate end, String subjectFilter) throws IllegalArgumentException {
+            return calculateReportData(ExcelDataManager.getUsersByRole("Student"), start, end, subjectFilter);
+        }
+
+        // Totals for exactly the given students; a report passes the list it goes on to display
+        protected static Map<String, double[]> calculateReportData(List<User> students, LocalDate start, LocalDate end, String subjectFilter)
+                throws IllegalArgumentException {
             if (start == null || end == null) {
                 throw new IllegalArgumentException("Dates cannot be empty.");
             }
@@ -1148,37 +1739,13 @@ public class AttendanceSystemUI {
                 throw new IllegalArgumentException("Start Date cannot be after End Date.");
             }
 
-            List<User> students = ExcelDataManager.getUsersByRole("Student");
-            List<AttendanceRecord> allRecords = ExcelDataManager.getAllAttendance();
-            boolean allSubjects = "All Subjects".equals(subjectFilter);
-
-            List<AttendanceRecord> subjectFilteredRecords = allRecords.stream()
-                    .filter(r -> allSubjects || r.subject.equals(subjectFilter))
-                    .collect(Collectors.toList());
-
-            List<AttendanceRecord> dateFilteredRecords = subjectFilteredRecords.stream()
-                    .filter(r -> {
-                        try {
-                            LocalDate recordDate = LocalDate.parse(r.date, GLOBAL_DATE_FORMATTER);
-                            return !recordDate.isBefore(start) && !recordDate.isAfter(end);
-                        } catch (DateTimeParseException e) {
-                            return false;
-                        }
-                    })
-                    .collect(Collectors.toList());
+            String subject = "All Subjects".equals(subjectFilter) ? null : subjectFilter;
+            Map<String, int[]> totals = ExcelDataManager.getAttendanceTotalsByStudent(start, end, subject);
 
             Map<String, double[]> reportData = new HashMap<>(); // Stores {present, absent}
-            students.forEach(student -> reportData.put(student.id, new double[]{0, 0}));
-            for (AttendanceRecord record : dateFilteredRecords) {
-                double[] counts = reportData.get(record.studentId);
-                if (counts != null) {
-                    if ("Present".equals(record.status)) {
-                        counts[0]++;
-                    } else {
-                        counts[1]++;
-
-                    }
-                }
+            for (User student : students) {
+                int[] counts = totals.get(student.id);
+                reportData.put(student.id, (counts == null) ? new double[]{0, 0} : new double[]{counts[0], counts[1]});
             }
             return reportData;
         }
@@ -1193,51 +1760,57 @@ public class AttendanceSystemUI {
         }
 
         protected void generateAggregateReport() {
-            Map<String, double[]> reportData;
-            try {
-                reportData = calculateReportData(aggStartDateChooser.getSelectedDate(), aggEndDateChooser.getSelectedDate(), getAggSubjectFilter()); // Use specific getter
-            } catch (IllegalArgumentException e) {
-                JOptionPane.showMessageDialog(this, e.getMessage(), "Input Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-            aggregateReportModel.setRowCount(0);
-            List<User> students = ExcelDataManager.getUsersByRole("Student");
-            for (User student : students) {
-                double[] counts = reportData.get(student.id);
-                double present = counts[0], absent = counts[1], total = present + absent;
-                double percentage = (total == 0) ? 100.0 : (present / total) * 100.0;
-                aggregateReportModel.addRow(new Object[]{student.id, student.name, (int) total, (int) present, (int) absent, percentage});
-            }
+            LocalDate start = aggStartDateChooser.getSelectedDate(), end = aggEndDateChooser.getSelectedDate();
+            String subjectFilter = getAggSubjectFilter(); // Use specific getter
+            DataAccess.load(this, () -> {
+                // IllegalArgumentException from here is reported as an input error
+                List<User> students = ExcelDataManager.getUsersByRole("Student");
+                Map<String, double[]> reportData = calculateReportData(students, start, end, subjectFilter);
+                List<Object[]> rows = new ArrayList<>();
+                for (User student : students) {
+                    double[] counts = reportData.get(student.id);
+                    double present = counts[0], absent = counts[1], total = present + absent;
+                    double percentage = (total == 0) ? 100.0 : (present / total) * 100.0;
+                    rows.add(new Object[]{student.id, student.name, (int) total, (int) present, (int) absent, percentage});
+                }
+                return rows;
+            }, rows -> {
+                aggregateReportModel.setRowCount(0);
+                rows.forEach(aggregateReportModel::addRow);
+            });
         }
 
         protected void generateAtRiskReport() {
-            Map<String, double[]> reportData;
             double threshold;
             try {
                 threshold = Double.parseDouble(atRiskThresholdField.getText());
-                reportData = calculateReportData(atRiskStartDateChooser.getSelectedDate(), atRiskEndDateChooser.getSelectedDate(), getAtRiskSubjectFilter()); // Use specific getter
-                // --- BUG FIX IS HERE ---
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(this, "Threshold must be a number (e.g., 75).", "Input Error", JOptionPane.ERROR_MESSAGE);
                 return;
-            } catch (IllegalArgumentException e) {
-                JOptionPane.showMessageDialog(this, e.getMessage(), "Input Error", JOptionPane.ERROR_MESSAGE);
-                return;
             }
-            // --- END OF FIX ---
-            atRiskReportModel.setRowCount(0);
-            List<User> students = ExcelDataManager.getUsersByRole("Student");
-            for (User student : students) {
-                double[] counts = reportData.get(student.id);
-                double present = counts[0], absent = counts[1], total = present + absent;
-                double percentage = (total == 0) ? 100.0 : (present / total) * 100.0;
-                if (total > 0 && percentage < threshold) {
-                    atRiskReportModel.addRow(new Object[]{student.id, student.name, (int) total, (int) present, (int) absent, percentage});
+            LocalDate start = atRiskStartDateChooser.getSelectedDate(), end = atRiskEndDateChooser.getSelectedDate();
+            String subjectFilter = getAtRiskSubjectFilter(); // Use specific getter
+            DataAccess.load(this, () -> {
+                // IllegalArgumentException from here is reported as an input error
+                List<User> students = ExcelDataManager.getUsersByRole("Student");
+                Map<String, double[]> reportData = calculateReportData(students, start, end, subjectFilter);
+                List<Object[]> rows = new ArrayList<>();
+                for (User student : students) {
+                    double[] counts = reportData.get(student.id);
+                    double present = counts[0], absent = counts[1], total = present + absent;
+                    double percentage = (total == 0) ? 100.0 : (present / total) * 100.0;
+                    if (total > 0 && percentage < threshold) {
+                        rows.add(new Object[]{student.id, student.name, (int) total, (int) present, (int) absent, percentage});
+                    }
                 }
-            }
-            if (atRiskReportModel.getRowCount() == 0) {
-                JOptionPane.showMessageDialog(this, "No students are below " + threshold + "% for this period.", "Report Complete", JOptionPane.INFORMATION_MESSAGE);
-            }
+                return rows;
+            }, rows -> {
+                atRiskReportModel.setRowCount(0);
+                rows.forEach(atRiskReportModel::addRow);
+                if (atRiskReportModel.getRowCount() == 0) {
+                    JOptionPane.showMessageDialog(this, "No students are below " + threshold + "% for this period.", "Report Complete", JOptionPane.INFORMATION_MESSAGE);
+                }
+            });
         }
 
         protected void exportToCSV(JTable table, String reportName) {
@@ -1384,7 +1957,7 @@ public class AttendanceSystemUI {
     // --- Add User Dialog ---
     static class AddUserDialog extends JDialog {
 
-        AddUserDialog(Frame owner, String role, Runnable refreshCallback) {
+        AddUserDialog(Frame owner, String role) {
             super(owner, "Add New " + role, true);
             boolean isStaff = role.equalsIgnoreCase("Staff");
             setSize(400, isStaff ? 300 : 250);
@@ -1434,33 +2007,382 @@ public class AttendanceSystemUI {
                     return;
                 }
                 String subject = isStaff ? (String) subjectSelector.getSelectedItem() : "";
-                ExcelDataManager.addUser(name, pass, role, subject);
-                refreshCallback.run();
-                dispose();
+                addButton.setEnabled(false);
+                DataAccess.save(getRootPane(), () -> ExcelDataManager.addUser(name, pass, role, subject), this::dispose);
             });
         }
     }
 
-    // --- NEW: Custom Modern Date Picker Button (No external JAR needed) ---
-    static class ModernDatePickerButton extends JButton {
+    // --- Roster Import (bulk add from a CSV or XLSX file) ---
+    // A roster has a header row, then one user per row: Name, Password and, for staff, Subject. Rows are
+    // checked in chunks on the common pool while the file is still being read; names are then checked
+    // for repeats in file order, and the valid rows go to ExcelDataManager.addUsers as one commit.
+    static class RosterImport {
 
-        private LocalDate selectedDate;
-        private final Frame owner;
+        private static final int CHUNK_SIZE = 1000;
+        private static final int PROGRESS_EVERY = 500;
+        private static final int MAX_LENGTH = 200;
 
-        public ModernDatePickerButton(Frame owner) {
-            this.owner = owner;
-            setSelectedDate(LocalDate.now());
-            this.setFont(AppStyles.FONT_NORMAL);
-            this.setCursor(new Cursor(Cursor.HAND_CURSOR));
-            this.setIcon(new ImageIcon(createCalendarIcon(AppStyles.SECONDARY_TEXT_COLOR))); // Simple icon
-            this.setHorizontalTextPosition(SwingConstants.LEFT);
-            this.setIconTextGap(8);
-            this.addActionListener(e -> openDatePicker());
+        // Called on the reading thread; percent is -1 when the format does not tell how far along it is
+        interface Progress {
+
+            void rowsRead(int rows, int percent);
         }
 
-        private void openDatePicker() {
-            Point loc = this.getLocationOnScreen();
-            ModernDatePickerDialog dialog = new ModernDatePickerDialog(owner, selectedDate);
+        static class Row {
+
+            final int line;
+            final String name, password;
+            String subject, error;
+
+            Row(int line, String[] cells) {
+                this.line = line;
+                this.name = cell(cells, 0);
+                this.password = cell(cells, 1);
+                this.subject = cell(cells, 2);
+            }
+
+            private static String cell(String[] cells, int column) {
+                return (column < cells.length && cells[column] != null) ? cells[column].trim() : "";
+            }
+        }
+
+        static class Result {
+
+            final List<Row> valid = new ArrayList<>();
+            final List<Row> rejected = new ArrayList<>();
+
+            // The valid rows as users without IDs, for ExcelDataManager.addUsers
+            List<User> users(String role) {
+                return valid.stream().map(r -> new User("", r.password, r.name, role, r.subject)).collect(Collectors.toList());
+            }
+        }
+
+        static Result read(File file, String role, Progress progress) throws IOException {
+            String fileName = file.getName().toLowerCase(Locale.ROOT);
+            boolean staff = role.equalsIgnoreCase("Staff");
+            Chunker chunker = new Chunker(staff, progress);
+            if (fileName.endsWith(".csv")) {
+                readCsv(file, chunker);
+            } else if (fileName.endsWith(".xlsx")) {
+                XlsxStorageEngine.streamFirstSheet(file, 3, (cells, rowNum) -> chunker.accept(cells, rowNum + 1));
+            } else {
+                throw new IllegalArgumentException("Please choose a .csv or .xlsx roster.");
+            }
+            chunker.finish();
+
+            Set<String> existing = new HashSet<>(), seen = new HashSet<>();
+            ExcelDataManager.getUsersByRole(role).forEach(u -> existing.add(u.name.trim().toLowerCase(Locale.ROOT)));
+            Result result = new Result();
+            for (CompletableFuture<List<Row>> chunk : chunker.checked) {
+                for (Row row : chunk.join()) {
+                    String key = row.name.toLowerCase(Locale.ROOT);
+                    if (row.error == null && existing.contains(key)) {
+                        row.error = "A " + role.toLowerCase(Locale.ROOT) + " with this name already exists";
+                    } else if (row.error == null && !seen.add(key)) {
+                        row.error = "Same name as an earlier row";
+                    }
+                    (row.error == null ? result.valid : result.rejected).add(row);
+                }
+            }
+            return result;
+        }
+
+        // Commas separate fields; a quoted field may hold commas, doubled quotes and line breaks.
+        // Progress is how far into the file the reader is.
+        private static void readCsv(File file, Chunker chunker) throws IOException {
+            try (FileInputStream in = new FileInputStream(file);
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                long size = Math.max(1, in.getChannel().size());
+                chunker.percent = () -> {
+                    try {
+                        return (int) Math.min(100, 100 * in.getChannel().position() / size);
+                    } catch (IOException e) {
+                        return -1;
+                    }
+                };
+                List<String> fields = new ArrayList<>();
+                StringBuilder field = new StringBuilder();
+                int lineNumber = 0, rowStart = 1;
+                boolean quoted = false;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                        line = line.substring(1);
+                    }
+                    if (quoted) {
+                        field.append('\n');
+                    } else {
+                        rowStart = lineNumber;
+                    }
+                    for (int i = 0; i < line.length(); i++) {
+                        char c = line.charAt(i);
+                        if (quoted) {
+                            if (c != '"') {
+                                field.append(c);
+                            } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                                field.append('"');
+                                i++;
+                            } else {
+                                quoted = false;
+                            }
+                        } else if (c == '"') {
+                            quoted = true;
+                        } else if (c == ',') {
+                            fields.add(field.toString());
+                            field.setLength(0);
+                        } else {
+                            field.append(c);
+                        }
+                    }
+                    if (!quoted) {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                        if (rowStart > 1) {
+                            chunker.accept(fields.toArray(new String[0]), rowStart);
+                        }
+                        fields.clear();
+                    }
+                }
+                // An unterminated quote runs to the end of the file; keep what it holds
+                if (quoted) {
+                    fields.add(field.toString());
+                    chunker.accept(fields.toArray(new String[0]), rowStart);
+                }
+            }
+        }
+
+        // Collects rows into chunks and hands each full chunk to the common pool to be checked
+        private static class Chunker implements ObjIntConsumer<String[]> {
+
+            private final boolean staff;
+            private final Progress progress;
+            private final List<CompletableFuture<List<Row>>> checked = new ArrayList<>();
+            private IntSupplier percent = () -> -1;
+            private List<Row> chunk = new ArrayList<>();
+            private int rows;
+
+            Chunker(boolean staff, Progress progress) {
+                this.staff = staff;
+                this.progress = progress;
+            }
+
+            @Override
+            public void accept(String[] cells, int line) {
+                if (Arrays.stream(cells).allMatch(c -> c == null || c.trim().isEmpty())) {
+                    return;
+                }
+                chunk.add(new Row(line, cells));
+                if (chunk.size() == CHUNK_SIZE) {
+                    submit();
+                }
+                if (++rows % PROGRESS_EVERY == 0) {
+                    progress.rowsRead(rows, percent.getAsInt());
+                }
+            }
+
+            void finish() {
+                if (!chunk.isEmpty()) {
+                    submit();
+                }
+                progress.rowsRead(rows, 100);
+            }
+
+            private void submit() {
+                List<Row> full = chunk;
+                chunk = new ArrayList<>();
+                checked.add(CompletableFuture.supplyAsync(() -> {
+                    full.forEach(row -> check(row, staff));
+                    return full;
+                }, ForkJoinPool.commonPool()));
+            }
+        }
+
+        private static void check(Row row, boolean staff) {
+            if (row.name.isEmpty()) {
+                row.error = "Name is missing";
+            } else if (row.password.isEmpty()) {
+                row.error = "Password is missing";
+            } else if (row.name.length() > MAX_LENGTH || row.password.length() > MAX_LENGTH) {
+                row.error = "Name or password is longer than " + MAX_LENGTH + " characters";
+            } else if (!staff) {
+                // Students have no subject, as in AddUserDialog
+                row.subject = "";
+            } else if (row.subject.isEmpty()) {
+                row.error = "Subject is missing";
+            } else {
+                String subject = Arrays.stream(SUBJECT_LIST).filter(s -> s.equalsIgnoreCase(row.subject)).findFirst().orElse(null);
+                if (subject == null) {
+                    row.error = "Unknown subject: " + row.subject;
+                } else {
+                    row.subject = subject;
+                }
+            }
+        }
+    }
+
+    // --- Import Users Dialog ---
+    // Reads a roster in the background, shows the rows that cannot be imported and adds the rest in one go
+    static class ImportUsersDialog extends JDialog {
+
+        private final String role;
+        private final JLabel statusLabel = new JLabel(" ");
+        private final JProgressBar progressBar = new JProgressBar(0, 100);
+        private final JButton chooseButton = new JButton("📂 Choose File...");
+        private final JButton importButton = new JButton("Import");
+        private final DefaultTableModel problemModel = new DefaultTableModel(new String[]{"Row", "Name", "Problem"}, 0) {
+            @Override
+            public boolean isCellEditable(int r, int c) {
+                return false;
+            }
+        };
+        private RosterImport.Result result;
+
+        ImportUsersDialog(Frame owner, String role) {
+            super(owner, "Import " + role + " Roster", true);
+            this.role = role;
+            setSize(680, 480);
+            setLocationRelativeTo(owner);
+            JPanel content = new JPanel(new BorderLayout(10, 10));
+            content.setBorder(new EmptyBorder(15, 15, 15, 15));
+            setContentPane(content);
+
+            String columns = role.equalsIgnoreCase("Staff") ? "Name, Password, Subject" : "Name, Password";
+            JLabel hint = new JLabel("CSV or Excel (.xlsx) file: a header row, then one " + role.toLowerCase(Locale.ROOT) + " per row with columns " + columns + ".");
+            hint.setFont(AppStyles.FONT_SMALL);
+            hint.setForeground(AppStyles.SECONDARY_TEXT_COLOR);
+            statusLabel.setFont(AppStyles.FONT_NORMAL);
+            progressBar.setStringPainted(true);
+            JPanel top = new JPanel(new GridLayout(3, 1, 0, 5));
+            top.add(hint);
+            top.add(progressBar);
+            top.add(statusLabel);
+            content.add(top, BorderLayout.NORTH);
+
+            content.add(new JScrollPane(CustomComponents.createModernTable(problemModel)), BorderLayout.CENTER);
+
+            chooseButton.setFont(AppStyles.FONT_BOLD);
+            importButton.setFont(AppStyles.FONT_BOLD);
+            importButton.setBackground(AppStyles.PRIMARY_COLOR);
+            importButton.setForeground(Color.WHITE);
+            importButton.setEnabled(false);
+            chooseButton.addActionListener(e -> chooseFile());
+            importButton.addActionListener(e -> importRows());
+            JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            buttonPanel.add(chooseButton);
+            buttonPanel.add(importButton);
+            content.add(buttonPanel, BorderLayout.SOUTH);
+        }
+
+        private void chooseFile() {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setDialogTitle("Choose " + role + " Roster");
+            fileChooser.setFileFilter(new FileNameExtensionFilter("CSV or Excel roster (*.csv, *.xlsx)", "csv", "xlsx"));
+            if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            File file = fileChooser.getSelectedFile();
+            result = null;
+            problemModel.setRowCount(0);
+            chooseButton.setEnabled(false);
+            importButton.setEnabled(false);
+            progressBar.setValue(0);
+            progressBar.setIndeterminate(true);
+            statusLabel.setText("Reading " + file.getName() + "...");
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            DataAccess.read(() -> {
+                try {
+                    return RosterImport.read(file, role, (rows, percent) -> SwingUtilities.invokeLater(() -> showProgress(rows, percent)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).whenComplete((read, error) -> SwingUtilities.invokeLater(() -> {
+                setCursor(null);
+                chooseButton.setEnabled(true);
+                progressBar.setIndeterminate(false);
+                if (error != null) {
+                    statusLabel.setText("Could not read " + file.getName() + ".");
+                    DataAccess.showFailure(this, error);
+                } else {
+                    showResult(read);
+                }
+            }));
+        }
+
+        private void showProgress(int rows, int percent) {
+            if (result != null) {
+                return;
+            }
+            if (percent >= 0) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue(percent);
+            }
+            statusLabel.setText(String.format("Read %,d rows...", rows));
+        }
+
+        private void showResult(RosterImport.Result read) {
+            result = read;
+            progressBar.setValue(100);
+            for (RosterImport.Row row : read.rejected) {
+                problemModel.addRow(new Object[]{row.line, row.name, row.error});
+            }
+            String noun = role.toLowerCase(Locale.ROOT);
+            if (read.valid.size() != 1 && !role.equalsIgnoreCase("Staff")) {
+                noun += "s";
+            }
+            statusLabel.setText(String.format("%,d %s ready to import", read.valid.size(), noun)
+                    + (read.rejected.isEmpty() ? "." : String.format("; %,d rows listed below will be skipped.", read.rejected.size())));
+            importButton.setText(String.format("Import %,d", read.valid.size()));
+            importButton.setEnabled(!read.valid.isEmpty());
+        }
+
+        private void importRows() {
+            List<User> users = result.users(role);
+            List<User> added = new ArrayList<>();
+            chooseButton.setEnabled(false);
+            importButton.setEnabled(false);
+            progressBar.setIndeterminate(true);
+            statusLabel.setText(String.format("Saving %,d users...", users.size()));
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            DataAccess.write(() -> added.addAll(ExcelDataManager.addUsers(role, users))).whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> {
+                setCursor(null);
+                progressBar.setIndeterminate(false);
+                if (error != null) {
+                    // Nothing was added; the same rows can be imported again
+                    statusLabel.setText("The roster could not be saved.");
+                    chooseButton.setEnabled(true);
+                    importButton.setEnabled(true);
+                    DataAccess.showFailure(this, error);
+                    return;
+                }
+                JOptionPane.showMessageDialog(this, String.format("Imported %,d users (IDs %s to %s).", added.size(), added.get(0).id,
+                        added.get(added.size() - 1).id), "Import Complete", JOptionPane.INFORMATION_MESSAGE);
+                dispose();
+            }));
+        }
+    }
+
+    // --- NEW: Custom Modern Date Picker Button (No external JAR needed) ---
+    static class ModernDatePickerButton extends JButton {
+
+        private LocalDate selectedDate;
+        private final Frame owner;
+
+        public ModernDatePickerButton(Frame owner) {
+            this.owner = owner;
+            setSelectedDate(LocalDate.now());
+            this.setFont(AppStyles.FONT_NORMAL);
+            this.setCursor(new Cursor(Cursor.HAND_CURSOR));
+            this.setIcon(new ImageIcon(createCalendarIcon(AppStyles.SECONDARY_TEXT_COLOR))); // Simple icon
+            this.setHorizontalTextPosition(SwingConstants.LEFT);
+            this.setIconTextGap(8);
+            this.addActionListener(e -> openDatePicker());
+        }
+
+        private void openDatePicker() {
+            Point loc = this.getLocationOnScreen();
+            ModernDatePickerDialog dialog = new ModernDatePickerDialog(owner, selectedDate);
             dialog.setLocation(loc.x, loc.y + this.getHeight());
             dialog.setVisible(true);
             if (dialog.getSelectedDate() != null) {
@@ -1606,310 +2528,604 @@ public class AttendanceSystemUI {
         }
     }
 
-    // --- Excel Data Manager (ALL WRITE METHODS FIXED) ---
-    static class ExcelDataManager {
+    // --- Background Data Access (keeps ExcelDataManager I/O off the Event Dispatch Thread) ---
+    static class DataAccess {
 
-        private static final String FILE_NAME = "college_data.xlsx";
-        private static final String USERS_SHEET = "Users";
-        private static final String ATTENDANCE_SHEET = "Attendance";
+        private static final String PENDING_LOAD = "DataAccess.pendingLoad";
+        private static final ExecutorService READERS = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(64), namedDaemonThreads("data-reader"));
 
-        public static void setupDatabase() {
-            File dbFile = new File(FILE_NAME);
-            Workbook workbook = null;
+        // A full queue fails the returned future rather than throwing, so callers clean up in one place
+        public static <T> CompletableFuture<T> read(Supplier<T> task) {
             try {
-                if (!dbFile.exists()) {
-                    workbook = new XSSFWorkbook();
-                } else {
-                    FileInputStream fis = new FileInputStream(dbFile);
-                    workbook = new XSSFWorkbook(fis);
-                    fis.close();
+                return CompletableFuture.supplyAsync(task, READERS);
+            } catch (RejectedExecutionException e) {
+                CompletableFuture<T> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+
+        // Writes run on the storage writer thread, one at a time, in the order they were submitted
+        public static CompletableFuture<Void> write(Runnable task) {
+            try {
+                return ExcelDataManager.submitWrite(task);
+            } catch (RejectedExecutionException e) {
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+
+        // Runs a read in the background and hands the result to onLoaded on the EDT. While it runs the
+        // owner shows a wait cursor; if the owner starts a newer load first, this result is dropped.
+        public static <T> void load(JComponent owner, Supplier<T> task, Consumer<T> onLoaded) {
+            Object token = new Object();
+            owner.putClientProperty(PENDING_LOAD, token);
+            owner.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            read(task).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                if (owner.getClientProperty(PENDING_LOAD) != token) {
+                    return;
                 }
-                Sheet usersSheet = workbook.getSheet(USERS_SHEET);
-                if (usersSheet == null) {
-                    usersSheet = workbook.createSheet(USERS_SHEET);
-                    Row header = usersSheet.createRow(0);
-                    header.createCell(0).setCellValue("ID");
-                    header.createCell(1).setCellValue("Password");
-                    header.createCell(2).setCellValue("Name");
-                    header.createCell(3).setCellValue("Role");
-                    header.createCell(4).setCellValue("Subject");
-                    Row adminRow = usersSheet.createRow(1);
-                    adminRow.createCell(0).setCellValue("admin");
-                    adminRow.createCell(1).setCellValue("admin123");
-                    adminRow.createCell(2).setCellValue("Administrator");
-                    adminRow.createCell(3).setCellValue("Admin");
-                    adminRow.createCell(4).setCellValue("");
+                owner.putClientProperty(PENDING_LOAD, null);
+                owner.setCursor(null);
+                if (error != null) {
+                    showFailure(owner, error);
                 } else {
-                    Row header = usersSheet.getRow(0);
-                    if (header == null) {
-                        header = usersSheet.createRow(0);
-                    }
-                    if (header.getCell(4) == null) {
-                        header.createCell(4).setCellValue("Subject");
-                    }
+                    onLoaded.accept(result);
                 }
-                Sheet attendanceSheet = workbook.getSheet(ATTENDANCE_SHEET);
-                if (attendanceSheet == null) {
-                    attendanceSheet = workbook.createSheet(ATTENDANCE_SHEET);
-                    Row attHeader = attendanceSheet.createRow(0);
-                    attHeader.createCell(0).setCellValue("StudentID");
-                    attHeader.createCell(1).setCellValue("Date");
-                    attHeader.createCell(2).setCellValue("Status");
-                    attHeader.createCell(3).setCellValue("Subject");
+            }));
+        }
+
+        public static boolean isLoading(JComponent owner) {
+            return owner.getClientProperty(PENDING_LOAD) != null;
+        }
+
+        // Runs a write on the storage writer thread and calls onSaved on the EDT once it has finished
+        public static void save(JComponent owner, Runnable task, Runnable onSaved) {
+            owner.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            write(task).whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> {
+                owner.setCursor(null);
+                if (error != null) {
+                    showFailure(owner, error);
                 } else {
-                    Row header = attendanceSheet.getRow(0);
-                    if (header == null) {
-                        header = attendanceSheet.createRow(0);
-                    }
-                    if (header.getCell(3) == null) {
-                        header.createCell(3).setCellValue("Subject");
-                    }
-                }
-                try (FileOutputStream fos = new FileOutputStream(FILE_NAME)) {
-                    workbook.write(fos);
+                    onSaved.run();
                 }
-                workbook.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+            }));
+        }
+
+        private static void showFailure(Component owner, Throwable error) {
+            Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+            if (cause instanceof IllegalArgumentException) {
+                JOptionPane.showMessageDialog(owner, cause.getMessage(), "Input Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
+            cause.printStackTrace();
+            String message = (cause instanceof RejectedExecutionException) ? "The system is busy, please try again." : String.valueOf(cause.getMessage());
+            JOptionPane.showMessageDialog(owner, "Data error: " + message, "Error", JOptionPane.ERROR_MESSAGE);
         }
 
-        // --- AUTHENTICATE METHOD (PATCHED) ---
-        public static User authenticateUser(String username, String password) {
-            try (FileInputStream fis = new FileInputStream(FILE_NAME); Workbook workbook = new XSSFWorkbook(fis)) {
-                Sheet sheet = workbook.getSheet(USERS_SHEET);
-                for (Row row : sheet) {
-                    if (row.getRowNum() == 0) {
-                        continue;
-                    }
-                    // FIX: Use helper to read any cell type (String/Number) and trim whitespace
-                    String cellName = getStringValue(row.getCell(2), "").trim();
-                    String cellPass = getStringValue(row.getCell(1), "").trim();
-
-                    if (cellName.equals(username.trim()) && cellPass.equals(password.trim())) {
-                        String id = getStringValue(row.getCell(0), "");
-                        String role = getStringValue(row.getCell(3), "");
-                        String subject = getStringValue(row.getCell(4), "");
-                        // Pass the original (non-trimmed) inputs to the constructor as they were the ones validated
-                        return new User(id, password, username, role, subject);
+        private static ThreadFactory namedDaemonThreads(String prefix) {
+            AtomicInteger count = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    // --- Password hashing ---
+    // Passwords are stored as "pbkdf2$<iterations>$<salt>$<hash>" (PBKDF2WithHmacSHA256, Base64), never
+    // in plaintext; stores from older versions are converted when ExcelDataManager loads them. Values are
+    // hashed trimmed, as logins trim what is typed. Bulk hashing and login checks share the VERIFIER pool.
+    static class Passwords {
+
+        private static final String SCHEME = "pbkdf2";
+        private static final int ITERATIONS = 10_000;
+        private static final SecureRandom SALTS = new SecureRandom();
+        // At most half the cores hash at once, so logins and imports cannot crowd out the EDT and the readers
+        private static final int VERIFIER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        static final ExecutorService VERIFIER = new ThreadPoolExecutor(VERIFIER_THREADS, VERIFIER_THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(64), runnable -> {
+                    Thread thread = new Thread(runnable, "credential-verifier");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        // On the calling thread with a fresh salt; for one-off values such as the seeded admin account
+        static String hash(String password) {
+            byte[] salt = new byte[16];
+            SALTS.nextBytes(salt);
+            return hash(password, salt);
+        }
+
+        // Hashes on the verifier pool, one slice per thread, and returns the results in order. Salts
+        // are drawn from salts when given (the generator's seeded data stays reproducible), else from
+        // SecureRandom.
+        static List<String> hashAll(List<String> passwords, SplittableRandom salts) {
+            byte[][] saltBytes = new byte[passwords.size()][16];
+            for (byte[] salt : saltBytes) {
+                if (salts == null) {
+                    SALTS.nextBytes(salt);
+                } else {
+                    for (int i = 0; i < salt.length; i++) {
+                        salt[i] = (byte) salts.nextInt();
                     }
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
             }
-            return null;
+            String[] hashes = new String[passwords.size()];
+            int slices = Math.min(VERIFIER_THREADS, passwords.size());
+            List<CompletableFuture<Void>> tasks = new ArrayList<>(slices);
+            for (int slice = 0; slice < slices; slice++) {
+                int from = passwords.size() * slice / slices, to = passwords.size() * (slice + 1) / slices;
+                tasks.add(CompletableFuture.runAsync(() -> {
+                    for (int i = from; i < to; i++) {
+                        hashes[i] = hash(passwords.get(i), saltBytes[i]);
+                    }
+                }, VERIFIER));
+            }
+            tasks.forEach(CompletableFuture::join);
+            return Arrays.asList(hashes);
         }
 
-        // --- ADD USER (WRITE METHOD PATCHED) ---
-        public static void addUser(String name, String password, String role, String subject) {
-            String idPrefix = role.equalsIgnoreCase("Student") ? "STU" : "STAFF";
-            int lastIdNum = getUsersByRole(role).stream()
-                    .map(u -> u.id.replaceAll("[^0-9]", "")).filter(s -> !s.isEmpty())
-                    .mapToInt(Integer::parseInt).max().orElse(0);
-            String newId = String.format("%s%03d", idPrefix, lastIdNum + 1);
-
-            Workbook workbook;
-            try (FileInputStream fis = new FileInputStream(FILE_NAME)) {
-                workbook = new XSSFWorkbook(fis);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
-            }
+        static boolean isHash(String stored) {
+            return Hash.parse(stored) != null;
+        }
 
-            Sheet sheet = workbook.getSheet(USERS_SHEET);
-            Row newRow = sheet.createRow(sheet.getLastRowNum() + 1);
-            newRow.createCell(0).setCellValue(newId);
-            newRow.createCell(1).setCellValue(password);
-            newRow.createCell(2).setCellValue(name);
-            newRow.createCell(3).setCellValue(role);
-            newRow.createCell(4).setCellValue(subject != null ? subject : "");
+        private static String hash(String password, byte[] salt) {
+            Base64.Encoder base64 = Base64.getEncoder();
+            return SCHEME + "$" + ITERATIONS + "$" + base64.encodeToString(salt) + "$"
+                    + base64.encodeToString(derive(password.trim(), salt, ITERATIONS));
+        }
 
-            try (FileOutputStream fos = new FileOutputStream(FILE_NAME)) {
-                workbook.write(fos);
-            } catch (IOException e) {
-                e.printStackTrace();
-            } finally {
-                try {
-                    workbook.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+        private static byte[] derive(String password, byte[] salt, int iterations) {
+            try {
+                PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, 256);
+                return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
             }
         }
 
-        // --- REMOVE USER (WRITE METHOD PATCHED) ---
-        public static void removeUser(String id) {
-            Workbook workbook;
-            try (FileInputStream fis = new FileInputStream(FILE_NAME)) {
-                workbook = new XSSFWorkbook(fis);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
+        // A stored hash taken apart once, so each check only runs PBKDF2
+        static final class Hash {
+
+            private final int iterations;
+            private final byte[] salt, hash;
+
+            private Hash(int iterations, byte[] salt, byte[] hash) {
+                this.iterations = iterations;
+                this.salt = salt;
+                this.hash = hash;
             }
 
-            Sheet sheet = workbook.getSheet(USERS_SHEET);
-            int rowToRemove = -1;
-            for (Row row : sheet) {
-                if (row.getRowNum() == 0 || row.getCell(0) == null) {
-                    continue;
+            // Null when stored is not in the hash format (for example a plaintext row not yet converted)
+            static Hash parse(String stored) {
+                String[] parts = stored.split("\\$");
+                if (parts.length != 4 || !SCHEME.equals(parts[0]) || !parts[1].matches("[1-9][0-9]{0,8}")) {
+                    return null;
                 }
-                if (getStringValue(row.getCell(0), "").equalsIgnoreCase(id)) {
-                    rowToRemove = row.getRowNum();
-                    break;
+                try {
+                    Base64.Decoder base64 = Base64.getDecoder();
+                    return new Hash(Integer.parseInt(parts[1]), base64.decode(parts[2]), base64.decode(parts[3]));
+                } catch (IllegalArgumentException e) {
+                    return null;
                 }
             }
-            if (rowToRemove != -1) {
-                Row foundRow = sheet.getRow(rowToRemove);
-                if (foundRow != null) {
-                    sheet.removeRow(foundRow);
-                }
-                if (rowToRemove <= sheet.getLastRowNum()) {
-                    sheet.shiftRows(rowToRemove + 1, sheet.getLastRowNum(), -1);
-                }
 
-                try (FileOutputStream fos = new FileOutputStream(FILE_NAME)) {
-                    workbook.write(fos);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+            boolean matches(String password) {
+                return MessageDigest.isEqual(hash, derive(password, salt, iterations));
             }
+        }
+    }
 
-            try {
-                workbook.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+    // --- Excel Data Manager (ALL WRITE METHODS FIXED) ---
+    // Serves reads from the resident copy and hands every write to the configured StorageEngine.
+    static class ExcelDataManager {
+
+        private static final String FILE_NAME = "college_data.xlsx";
+        private static final String LOG_FILE_NAME = "college_data.log";
+        // Run with -Dattendance.storage=log to keep data in the append-only log instead of the workbook
+        private static final String STORAGE_PROPERTY = "attendance.storage";
+        // Held around every commit so two instances sharing the data folder cannot interleave writes
+        private static final String LOCK_FILE_NAME = "college_data.lock";
+        // Run with -Dattendance.dataDir=<folder> to keep the data files outside the working directory
+        private static final String DATA_DIR_PROPERTY = "attendance.dataDir";
+        private static File dataDir;
+        private static StorageEngine engine;
+        private static volatile boolean opened;
+
+        // --- Single writer: all mutations run on this thread, in submission order ---
+        private static volatile Thread writerThread;
+        private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-writer");
+            thread.setDaemon(true);
+            writerThread = thread;
+            return thread;
+        });
+        private static FileChannel lockChannel;
+        private static boolean compactionQueued; // only touched on the writer thread
+        // Last ID number handed out per lower-cased role, see nextUserId
+        private static final Map<String, AtomicLong> ID_SEQUENCES = new ConcurrentHashMap<>();
+
+        public static void setupDatabase() {
+            dataDir = new File(System.getProperty(DATA_DIR_PROPERTY, "."));
+            engine = createEngine(dataDir, System.getProperty(STORAGE_PROPERTY));
+            commit(() -> {
+                StoreContents contents = engine.open();
+                if (hashPlaintextPasswords(contents)) {
+                    engine.replaceAll(contents);
+                }
+                ResidentStore.load(contents);
+                opened = true;
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread(ExcelDataManager::flushPendingWrites, "flush-on-exit"));
         }
 
-        // --- UPDATE PASSWORD (WRITE METHOD PATCHED) ---
-        public static void updatePassword(String userId, String newPassword) {
-            File file = new File(FILE_NAME);
-            Workbook workbook;
-            boolean updated = false;
+        // "log" selects the log engine; anything else, including null, the XLSX engine
+        static StorageEngine createEngine(File dir, String storage) {
+            File dbFile = new File(dir, FILE_NAME);
+            return "log".equalsIgnoreCase(storage)
+                    ? new LogStorageEngine(new File(dir, LOG_FILE_NAME), dbFile)
+                    : new XlsxStorageEngine(dbFile);
+        }
 
-            try (FileInputStream fis = new FileInputStream(file)) {
-                workbook = new XSSFWorkbook(fis);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
+        public static CompletableFuture<Void> submitWrite(Runnable task) {
+            return CompletableFuture.runAsync(task, WRITER);
+        }
+
+        // Runs the mutation on the writer thread (inline if already there) and waits for it
+        private static void commit(StorageWrite write) {
+            if (Thread.currentThread() == writerThread) {
+                commitLocked(write);
+            } else {
+                submitWrite(() -> commitLocked(write)).join();
             }
+        }
 
-            Sheet sheet = workbook.getSheet(USERS_SHEET);
-            for (Row row : sheet) {
-                if (row.getRowNum() == 0 || row.getCell(0) == null) {
-                    continue;
+        private static void commitLocked(StorageWrite write) {
+            try {
+                if (lockChannel == null) {
+                    lockChannel = FileChannel.open(new File(dataDir, LOCK_FILE_NAME).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
                 }
-                if (getStringValue(row.getCell(0), "").equalsIgnoreCase(userId)) {
-                    Cell passCell = row.getCell(1);
-                    if (passCell == null) {
-                        passCell = row.createCell(1);
+                FileLock lock = lockChannel.lock();
+                try {
+                    // Another instance committed since our last look: start from its state, not ours
+                    if (opened && engine.changedExternally()) {
+                        StoreContents contents = engine.load();
+                        if (hashPlaintextPasswords(contents)) {
+                            engine.replaceAll(contents);
+                        }
+                        ResidentStore.load(contents);
+                        DataChange.publish(DataChange.reloaded());
                     }
-                    passCell.setCellValue(newPassword);
-                    updated = true;
-                    break;
+                    write.run();
+                    if (opened && engine.hasStagedChanges()) {
+                        WriteBehind.staged();
+                    }
+                    if (opened && engine.needsCompaction()) {
+                        scheduleCompaction();
+                    }
+                } finally {
+                    lock.release();
                 }
+            } catch (IOException e) {
+                // Fails the caller's future, so the UI reports the error instead of a successful save
+                throw new UncheckedIOException(e);
             }
+        }
 
-            if (updated) {
-                try (FileOutputStream fos = new FileOutputStream(file)) {
-                    workbook.write(fos);
-                } catch (IOException e) {
-                    e.printStackTrace();
+        // Compaction rewrites the whole store, so it runs as a commit of its own behind the write that
+        // asked for it; that write's caller does not wait for it
+        private static void scheduleCompaction() {
+            if (compactionQueued) {
+                return;
+            }
+            compactionQueued = true;
+            submitWrite(() -> {
+                compactionQueued = false;
+                commitLocked(() -> {
+                    if (engine.needsCompaction()) {
+                        engine.replaceAll(ResidentStore.contents());
+                    }
+                });
+            }).exceptionally(e -> {
+                // The store is still complete, just not compacted; a later write schedules it again
+                e.printStackTrace();
+                return null;
+            });
+        }
+
+        private interface StorageWrite {
+
+            void run() throws IOException;
+        }
+
+        // --- XLSX IMPORT / EXPORT (independent of the active engine) ---
+        // Refuses a workbook that is not in the college_data.xlsx layout or has no Admin account to log in with
+        public static void importFromXlsx(File source) {
+            commit(() -> {
+                StoreContents contents = new StoreContents(new ArrayList<>(), new ArrayList<>());
+                if (!XlsxStorageEngine.stream(source, contents.users::add, contents.attendance::add, contents.idSequences::put)
+                        || contents.users.stream().noneMatch(u -> "Admin".equalsIgnoreCase(u.role))) {
+                    throw new IllegalArgumentException(source.getName() + " is not an attendance workbook with Users and Attendance sheets and an Admin account.");
                 }
+                hashPlaintextPasswords(contents);
+                engine.replaceAll(contents);
+                ResidentStore.load(contents);
+                DataChange.publish(DataChange.reloaded());
+            });
+        }
+
+        // Reloads the resident copy if another instance committed since; that publishes RELOADED
+        public static void checkForExternalChanges() {
+            if (opened) {
+                ResidentStore.reloadIfChanged();
             }
+        }
 
-            try {
-                workbook.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+        public static void exportToXlsx(File target) throws IOException {
+            XlsxStorageEngine.export(ResidentStore.contents(), target);
+        }
+
+        // --- AUTHENTICATE METHOD (PATCHED) ---
+        // One hash lookup by trimmed name, then a salted-hash check of that name's accounts, in file
+        // order. The check runs on the bounded verifier pool; when it is full the login is rejected
+        // (RejectedExecutionException) instead of queueing without limit.
+        public static User authenticateUser(String username, String password) {
+            return CompletableFuture.supplyAsync(() -> {
+                // FIX: Stored values are trimmed so Excel whitespace does not block a login
+                List<CredentialIndex.Credential> candidates = CredentialIndex.current().candidates(username.trim());
+                if (candidates.isEmpty()) {
+                    // An unknown name costs the same hash as a known one, so timing does not reveal accounts
+                    CredentialIndex.UNKNOWN.matches(password.trim());
+                }
+                for (CredentialIndex.Credential credential : candidates) {
+                    if (credential.matches(password.trim())) {
+                        // Pass the original (non-trimmed) inputs to the constructor as they were the ones validated
+                        User user = credential.user;
+                        return new User(user.id, password, username, user.role, user.subject);
+                    }
+                }
+                return null;
+            }, Passwords.VERIFIER).join();
+        }
+
+        // Accounts by trimmed name, built from the resident users list and rebuilt whenever that list is
+        // replaced (every user change and reload publishes a new one). Each account keeps its stored hash
+        // already taken apart; accounts whose User object is unchanged keep theirs across rebuilds.
+        private static final class CredentialIndex {
+
+            private static volatile CredentialIndex current = new CredentialIndex(Collections.emptyList(), null);
+            static final Credential UNKNOWN = new Credential(new User("", Passwords.hash(""), "", ""));
+
+            private final List<User> users;
+            private final Map<String, List<Credential>> byName = new HashMap<>();
+            private final Map<User, Credential> byUser = new IdentityHashMap<>();
+
+            private CredentialIndex(List<User> users, CredentialIndex previous) {
+                this.users = users;
+                for (User user : users) {
+                    Credential credential = (previous != null) ? previous.byUser.get(user) : null;
+                    if (credential == null) {
+                        credential = new Credential(user);
+                    }
+                    byUser.put(user, credential);
+                    byName.computeIfAbsent(user.name.trim(), k -> new ArrayList<>(1)).add(credential);
+                }
+            }
+
+            static CredentialIndex current() {
+                List<User> users = ResidentStore.users();
+                CredentialIndex index = current;
+                if (index.users != users) {
+                    synchronized (CredentialIndex.class) {
+                        index = current;
+                        if (index.users != users) {
+                            index = new CredentialIndex(users, index);
+                            current = index;
+                        }
+                    }
+                }
+                return index;
+            }
+
+            List<Credential> candidates(String name) {
+                return byName.getOrDefault(name, Collections.emptyList());
+            }
+
+            static final class Credential {
+
+                final User user; // without its password
+                private final Passwords.Hash hash; // null if the stored value is not a hash
+
+                Credential(User user) {
+                    this.user = new User(user.id, "", user.name, user.role, user.subject);
+                    this.hash = Passwords.Hash.parse(user.password);
+                }
+
+                boolean matches(String password) {
+                    return hash != null && hash.matches(password);
+                }
+            }
+        }
+
+        // Rows written by older versions hold plaintext passwords. Hashes them in contents and returns
+        // true if there were any, in which case the caller writes contents back to the store.
+        private static boolean hashPlaintextPasswords(StoreContents contents) {
+            List<Integer> plaintext = new ArrayList<>();
+            for (int i = 0; i < contents.users.size(); i++) {
+                if (!Passwords.isHash(contents.users.get(i).password)) {
+                    plaintext.add(i);
+                }
+            }
+            if (plaintext.isEmpty()) {
+                return false;
+            }
+            List<String> hashes = Passwords.hashAll(plaintext.stream().map(i -> contents.users.get(i).password).collect(Collectors.toList()), null);
+            for (int k = 0; k < plaintext.size(); k++) {
+                User u = contents.users.get(plaintext.get(k));
+                contents.users.set(plaintext.get(k), new User(u.id, hashes.get(k), u.name, u.role, u.subject));
+            }
+            return true;
+        }
+
+        // --- ADD USER (WRITE METHOD PATCHED) ---
+        public static void addUser(String name, String password, String role, String subject) {
+            String hash = Passwords.hashAll(Collections.singletonList(password), null).get(0);
+            commit(() -> {
+                User user = new User(nextUserId(role), hash, name, role, subject);
+                engine.addUser(user);
+                ResidentStore.addUser(user);
+                DataChange.publish(DataChange.userAdded(user));
+            });
+        }
+
+        // --- ADD USERS IN BULK (roster import) ---
+        // The whole list gets one block of IDs, one engine write and one change event. Only name,
+        // password and subject are taken from newUsers; returns the users as stored, in the same order.
+        public static List<User> addUsers(String role, List<User> newUsers) {
+            List<User> added = new ArrayList<>();
+            if (newUsers.isEmpty()) {
+                return added;
+            }
+            List<String> hashes = Passwords.hashAll(newUsers.stream().map(u -> u.password).collect(Collectors.toList()), null);
+            commit(() -> {
+                long first = allocateUserIds(role, newUsers.size());
+                List<User> batch = new ArrayList<>(newUsers.size());
+                for (int i = 0; i < newUsers.size(); i++) {
+                    User u = newUsers.get(i);
+                    batch.add(new User(userId(role, first + i), hashes.get(i), u.name, role, u.subject));
+                }
+                engine.addUsers(batch);
+                ResidentStore.addUsers(batch);
+                DataChange.publish(DataChange.usersAdded(batch));
+                added.addAll(batch);
+            });
+            return added;
+        }
+
+        // Next STU###/STAFF### ID for the role. Each role has its own sequence. Removing a user first
+        // stores the role's sequence, and a load recovers it from the higher of that stored value and
+        // the highest ID number left, so a number is never handed out twice, even across restarts.
+        private static String nextUserId(String role) {
+            return userId(role, idSequence(role).incrementAndGet());
+        }
+
+        // Reserves count consecutive ID numbers for the role in one step and returns the first
+        private static long allocateUserIds(String role, int count) {
+            return idSequence(role).addAndGet(count) - count + 1;
+        }
+
+        private static String userId(String role, long number) {
+            String idPrefix = role.equalsIgnoreCase("Student") ? "STU" : "STAFF";
+            return String.format("%s%03d", idPrefix, number);
+        }
+
+        private static AtomicLong idSequence(String role) {
+            return ID_SEQUENCES.computeIfAbsent(role.toLowerCase(Locale.ROOT), k -> new AtomicLong());
+        }
+
+        // Moves each role's sequence up to its stored value and the highest ID number in users; a
+        // sequence never goes back
+        private static void recoverIdSequences(StoreContents contents) {
+            contents.idSequences.forEach((role, last) -> idSequence(role).accumulateAndGet(last, Math::max));
+            for (User user : contents.users) {
+                String digits = user.id.replaceAll("[^0-9]", "");
+                if (!digits.isEmpty() && digits.length() <= 18) {
+                    idSequence(user.role).accumulateAndGet(Long.parseLong(digits), Math::max);
+                }
             }
         }
 
-        // --- These READ-ONLY methods are fine as-is ---
+        private static Map<String, Long> idSequences() {
+            Map<String, Long> sequences = new TreeMap<>();
+            ID_SEQUENCES.forEach((role, last) -> sequences.put(role, last.get()));
+            return sequences;
+        }
+
+        // --- REMOVE USER (WRITE METHOD PATCHED) ---
+        public static void removeUser(String id) {
+            commit(() -> {
+                // Once the holder of the highest number is gone, only the stored sequence remembers it
+                User removed = ResidentStore.user(id);
+                if (removed != null) {
+                    engine.setIdSequence(removed.role, idSequence(removed.role).get());
+                }
+                engine.removeUser(id);
+                ResidentStore.removeUser(id);
+                DataChange.publish(DataChange.userRemoved(id));
+            });
+        }
+
+        // --- UPDATE PASSWORD (WRITE METHOD PATCHED) ---
+        public static void updatePassword(String userId, String newPassword) {
+            String hash = Passwords.hashAll(Collections.singletonList(newPassword), null).get(0);
+            commit(() -> {
+                engine.updatePassword(userId, hash);
+                ResidentStore.updatePassword(userId, hash);
+                DataChange.publish(DataChange.passwordChanged(userId));
+            });
+        }
+
+        // --- READ-ONLY methods are served from the resident copy ---
         public static List<User> getUsersByRole(String role) {
             List<User> users = new ArrayList<>();
-            try (FileInputStream fis = new FileInputStream(FILE_NAME); Workbook workbook = new XSSFWorkbook(fis)) {
-                Sheet sheet = workbook.getSheet(USERS_SHEET);
-                for (Row row : sheet) {
-                    if (row.getRowNum() == 0 || row.getCell(3) == null) {
-                        continue;
-                    }
-                    if (row.getCell(3).getStringCellValue().equalsIgnoreCase(role)) {
-                        String id = getStringValue(row.getCell(0), ""), name = getStringValue(row.getCell(2), "");
-                        String subject = getStringValue(row.getCell(4), "");
-                        users.add(new User(id, "", name, role, subject));
-                    }
+            for (User user : ResidentStore.users()) {
+                if (user.role.equalsIgnoreCase(role)) {
+                    users.add(new User(user.id, "", user.name, role, user.subject));
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
             }
             return users;
         }
 
         public static User getUserById(String userId) {
-            try (FileInputStream fis = new FileInputStream(FILE_NAME); Workbook workbook = new XSSFWorkbook(fis)) {
-                Sheet sheet = workbook.getSheet(USERS_SHEET);
-                for (Row row : sheet) {
-                    if (row.getRowNum() == 0 || row.getCell(0) == null) {
-                        continue;
-                    }
-                    if (getStringValue(row.getCell(0), "").equalsIgnoreCase(userId)) {
-                        String name = getStringValue(row.getCell(2), ""), role = getStringValue(row.getCell(3), "");
-                        String subject = getStringValue(row.getCell(4), "");
-                        return new User(userId, "", name, role, subject);
-                    }
+            for (User user : ResidentStore.users()) {
+                if (user.id.equalsIgnoreCase(userId)) {
+                    return new User(userId, "", user.name, user.role, user.subject);
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
             }
             return null;
         }
 
-        public static List<AttendanceRecord> getAllAttendance() {
-            List<AttendanceRecord> records = new ArrayList<>();
-            try (FileInputStream fis = new FileInputStream(FILE_NAME); Workbook workbook = new XSSFWorkbook(fis)) {
-                Sheet sheet = workbook.getSheet(ATTENDANCE_SHEET);
-                if (sheet == null) {
-                    return records;
-                }
-                for (Row row : sheet) {
-                    if (row.getRowNum() == 0 || row.getCell(0) == null || getStringValue(row.getCell(0), "").isEmpty()) {
-                        continue;
-                    }
-                    String subject = getStringValue(row.getCell(3), "General");
-                    records.add(new AttendanceRecord(getStringValue(row.getCell(0), ""), getStringValue(row.getCell(1), ""), getStringValue(row.getCell(2), ""), subject));
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
+        // ID -> User lookup for joins; IDs compare case-insensitively like getUserById
+        public static Map<String, User> getUsersById() {
+            Map<String, User> usersById = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (User user : ResidentStore.users()) {
+                usersById.putIfAbsent(user.id, new User(user.id, "", user.name, user.role, user.subject));
             }
-            return records;
+            return usersById;
+        }
+
+        public static List<AttendanceRecord> getAllAttendance() {
+            return ResidentStore.attendance();
+        }
+
+        // Every record as a compact copy for AttendanceTableModel, in file order
+        public static AttendanceTable.RowView getAttendanceView() {
+            return ResidentStore.view();
         }
 
         // ... other read-only calculation methods are fine ...
         public static List<AttendanceRecord> getAllAttendanceForToday() {
             String today = LocalDate.now().format(GLOBAL_DATE_FORMATTER);
-            return getAllAttendance().stream().filter(r -> r.date.equals(today)).collect(Collectors.toList());
+            return ResidentStore.forDate(today);
         }
 
         public static Map<String, Double> getOverallAttendanceForToday() {
-            return calculateStatsFromRecords(getAllAttendanceForToday());
+            int today = Math.toIntExact(LocalDate.now().toEpochDay());
+            return calculateStats(ResidentStore.totals(today, today, null));
         }
 
         public static Map<String, Double> getOverallAttendanceForToday(String subject) {
-            List<AttendanceRecord> todayRecords = getAllAttendanceForToday().stream()
-                    .filter(r -> r.subject.equals(subject)).collect(Collectors.toList());
-            return calculateStatsFromRecords(todayRecords);
+            int today = Math.toIntExact(LocalDate.now().toEpochDay());
+            return calculateStats(ResidentStore.totals(today, today, subject));
         }
 
-        private static Map<String, Double> calculateStatsFromRecords(List<AttendanceRecord> records) {
-            double present = 0, absent = 0;
-            for (AttendanceRecord r : records) {
-                if ("Present".equals(r.status)) {
-                    present++;
-                } else {
-                    absent++;
-                }
-            }
+        // Totals are {present, absent}; anything other than "Present" counts as absent
+        private static Map<String, Double> calculateStats(int[] totals) {
+            double present = totals[0], absent = totals[1];
             double total = present + absent;
             double percentage = (total == 0) ? 100.0 : (present / total) * 100.0;
             Map<String, Double> stats = new HashMap<>();
@@ -1920,154 +3136,2312 @@ public class AttendanceSystemUI {
             return stats;
         }
 
+        // {present, absent} per student ID over the lectures in [start, end]; a null subject means all subjects
+        public static Map<String, int[]> getAttendanceTotalsByStudent(LocalDate start, LocalDate end, String subject) {
+            return ResidentStore.totalsByStudent(Math.toIntExact(start.toEpochDay()), Math.toIntExact(end.toEpochDay()), subject);
+        }
+
+        // {present, absent} per subject for one student, most recently attended subject first
+        public static Map<String, int[]> getSubjectTotalsForStudent(String studentId) {
+            return ResidentStore.subjectTotals(studentId);
+        }
+
         public static List<AttendanceRecord> getAttendanceForStudent(String studentId) {
-            return getAllAttendance().stream().filter(r -> r.studentId.equalsIgnoreCase(studentId))
-                    .sorted((r1, r2) -> r2.date.compareTo(r1.date)).collect(Collectors.toList());
+            return ResidentStore.forStudent(studentId); // newest first, ordered by epoch day
+        }
+
+        public static AttendanceTable.RowView getAttendanceViewForStudent(String studentId) {
+            return ResidentStore.viewForStudent(studentId); // newest first, as getAttendanceForStudent
         }
 
         public static boolean hasAttendanceBeenMarked(String dateStr, String subject) {
-            return getAllAttendance().stream().anyMatch(r -> r.date.equals(dateStr) && r.subject.equals(subject));
+            return ResidentStore.hasLecture(dateStr, subject);
         }
 
         public static String getStudentStatusForDate(String studentId, String dateStr, String subject) {
-            return getAllAttendance().stream()
-                    .filter(r -> r.date.equals(dateStr) && r.studentId.equals(studentId) && r.subject.equals(subject))
+            return ResidentStore.forLecture(dateStr, subject).stream()
+                    .filter(r -> r.studentId.equals(studentId))
                     .map(r -> r.status).findFirst().orElse("Absent");
         }
 
+        // Status of every student marked for one lecture, collected in a single pass (first record wins)
+        public static Map<String, String> getStatusesForLecture(String dateStr, String subject) {
+            Map<String, String> statuses = new HashMap<>();
+            for (AttendanceRecord r : ResidentStore.forLecture(dateStr, subject)) {
+                statuses.putIfAbsent(r.studentId, r.status);
+            }
+            return statuses;
+        }
+
         // --- MARK ATTENDANCE (WRITE METHOD PATCHED) ---
         public static void markAttendance(List<AttendanceRecord> records, String dateStr, String subject) {
-            Workbook workbook;
-            try (FileInputStream fis = new FileInputStream(FILE_NAME)) {
-                workbook = new XSSFWorkbook(fis);
-            } catch (IOException e) {
-                e.printStackTrace();
+            commit(() -> {
+                // Checked before the engine write, so a rejected subject leaves both copies untouched
+                if (!ResidentStore.canAccept(subject)) {
+                    throw new IllegalArgumentException("Cannot mark " + subject + ": the attendance data already holds 256 subjects.");
+                }
+                engine.replaceLecture(dateStr, subject, records);
+                ResidentStore.replaceLecture(dateStr, subject, records);
+                DataChange.publish(DataChange.attendanceMarked(dateStr, subject, records));
+            });
+        }
+
+        // --- UPDATE SINGLE RECORD (WRITE METHOD PATCHED) ---
+        // The edit is staged durably and visible to readers at once; see WriteBehind
+        public static void updateSingleAttendanceRecord(String studentId, String date, String subject, String newStatus) {
+            commit(() -> {
+                engine.stageStatus(studentId, date, subject, newStatus);
+                ResidentStore.updateStatus(studentId, date, subject, newStatus);
+                DataChange.publish(DataChange.recordUpdated(studentId, date, subject, newStatus));
+            });
+        }
+
+        // Flush-on-exit hook; also safe to call at any time
+        public static void flushPendingWrites() {
+            if (engine == null) {
                 return;
             }
+            commit(() -> {
+                WriteBehind.reset();
+                engine.flush();
+            });
+        }
 
-            Sheet sheet = workbook.getSheet(ATTENDANCE_SHEET);
-            List<Integer> rowsToRemove = new ArrayList<>();
-            for (Row row : sheet) {
-                if (row.getRowNum() == 0) {
-                    continue;
+        // Write-behind: while the engine holds staged changes, the main store is rewritten once writes
+        // have been quiet for a while, so a burst of saves costs one rewrite. A journal that grows too
+        // large meanwhile is compacted instead (see scheduleCompaction).
+        private static class WriteBehind {
+
+            private static final long DEBOUNCE_MILLIS = 30_000;
+            private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            private static ScheduledFuture<?> pendingFlush;
+
+            static synchronized void staged() {
+                if (pendingFlush != null) {
+                    pendingFlush.cancel(false);
                 }
-                String rowDate = getStringValue(row.getCell(1), "");
-                String rowSubject = getStringValue(row.getCell(3), "General");
-                if (rowDate.equals(dateStr) && rowSubject.equals(subject)) {
-                    rowsToRemove.add(row.getRowNum());
+                pendingFlush = TIMER.schedule(WriteBehind::flush, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+
+            // A failed flush leaves the edits in the journal; the next flush or the next start applies them
+            private static void flush() {
+                try {
+                    flushPendingWrites();
+                } catch (UncheckedIOException | CompletionException e) {
+                    e.printStackTrace();
                 }
             }
-            rowsToRemove.sort(Comparator.reverseOrder());
-            int numRowsRemoved = 0;
-            for (int rowIndex : rowsToRemove) {
-                Row row = sheet.getRow(rowIndex);
-                if (row != null) {
-                    sheet.removeRow(row);
-                    numRowsRemoved++;
+
+            static synchronized void reset() {
+                if (pendingFlush != null) {
+                    pendingFlush.cancel(false);
+                    pendingFlush = null;
                 }
             }
-            if (numRowsRemoved > 0 && !rowsToRemove.isEmpty()) {
-                int firstRowRemoved = rowsToRemove.get(rowsToRemove.size() - 1);
-                if (firstRowRemoved + numRowsRemoved <= sheet.getLastRowNum()) {
-                    sheet.shiftRows(firstRowRemoved + numRowsRemoved, sheet.getLastRowNum(), -numRowsRemoved, true, false);
+        }
+
+        // --- Resident copy of the users and attendance ---
+        // Loaded once by setupDatabase() and kept current by every write; the store is only
+        // read again when the engine reports that its file was changed by someone else.
+        // Readers get copies taken under a short monitor, never while the writer is doing disk I/O.
+        private static class ResidentStore {
+
+            private static List<User> users = new ArrayList<>();
+            private static final AttendanceTable attendance = new AttendanceTable();
+
+            static List<User> users() {
+                reloadIfChanged();
+                synchronized (ResidentStore.class) {
+                    return users;
                 }
             }
 
-            int lastRow = sheet.getLastRowNum();
-            for (int i = 0; i < records.size(); i++) {
-                Row newRow = sheet.createRow(lastRow + 1 + i);
-                AttendanceRecord record = records.get(i);
-                newRow.createCell(0).setCellValue(record.studentId);
-                newRow.createCell(1).setCellValue(record.date);
-                newRow.createCell(2).setCellValue(record.status);
-                newRow.createCell(3).setCellValue(record.subject);
+            static List<AttendanceRecord> attendance() {
+                reloadIfChanged();
+                synchronized (ResidentStore.class) {
+                    return attendance.records();
+                }
             }
 
-            try (FileOutputStream fos = new FileOutputStream(FILE_NAME)) {
-                workbook.write(fos);
-            } catch (IOException e) {
-                e.printStackTrace();
-            } finally {
-                try {
-                    workbook.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+            static List<AttendanceRecord> forLecture(String date, String subject) {
+                reloadIfChanged();
+                synchronized (ResidentStore.class) {
+                    return attendance.forLecture(date, subject);
                 }
             }
-        }
 
-        // --- UPDATE SINGLE RECORD (WRITE METHOD PATCHED) ---
-        public static void updateSingleAttendanceRecord(String studentId, String date, String subject, String newStatus) {
-            File file = new File(FILE_NAME);
-            Workbook workbook;
-            boolean updated = false;
+            static List<AttendanceRecord> forStudent(String studentId) {
+                reloadIfChanged();
+                synchronized (ResidentStore.class) {
+                    return attendance.forStudent(studentId);
+                }
+            }
 
-            try (FileInputStream fis = new FileInputStream(file)) {
-                workbook = new XSSFWorkbook(fis);
-            } catch (Exception e) {
-                e.printStackTrace();
-                return;
+            static AttendanceTable.RowView view() {
+                reloadIfChanged();
+                synchronized (ResidentStore.class) {
+                    return attendance.view();
+                }
             }
 
-            Sheet sheet = workbook.getSheet(ATTENDANCE_SHEET);
-            for (Row row : sheet) {
-                if (row.getRowNum() == 0) {
-                    continue;
+            static AttendanceTable.RowView viewForStudent(String studentId) {
+                reloadIfChanged();
+                synchronized (ResidentStore.class) {
+                    return attendance.viewForStudent(studentId);
+                }
+            }
+
+            static boolean hasLecture(String date, String subject) {
+                reloadIfChanged();
+                synchronized (ResidentStore.class) {
+                    return attendance.hasLecture(date, subject);
+                }
+            }
+
+            static List<AttendanceRecord> forDate(String date) {
+                reloadIfChanged();
+                synchronized (ResidentStore.class) {
+                    return attendance.forDate(date);
+                }
+            }
+
+            static int[] totals(int fromDay, int toDay, String subject) {
+                reloadIfChanged();
+                synchronized (ResidentStore.class) {
+                    return attendance.totals(fromDay, toDay, subject);
+                }
+            }
+
+            static Map<String, int[]> totalsByStudent(int fromDay, int toDay, String subject) {
+                reloadIfChanged();
+                synchronized (ResidentStore.class) {
+                    return attendance.totalsByStudent(fromDay, toDay, subject);
+                }
+            }
+
+            static Map<String, int[]> subjectTotals(String studentId) {
+                reloadIfChanged();
+                synchronized (ResidentStore.class) {
+                    return attendance.subjectTotals(studentId);
+                }
+            }
+
+            static synchronized StoreContents contents() {
+                return new StoreContents(users, attendance.records(), idSequences());
+            }
+
+            static synchronized void load(StoreContents contents) {
+                users = Collections.unmodifiableList(new ArrayList<>(contents.users));
+                recoverIdSequences(contents);
+                attendance.clear();
+                contents.attendance.forEach(attendance::add);
+            }
+
+            // User objects are shared with readers, so user changes publish a new list instead of mutating
+            static synchronized void addUser(User user) {
+                List<User> updated = new ArrayList<>(users);
+                updated.add(user);
+                users = Collections.unmodifiableList(updated);
+            }
+
+            static synchronized void addUsers(List<User> added) {
+                List<User> updated = new ArrayList<>(users.size() + added.size());
+                updated.addAll(users);
+                updated.addAll(added);
+                users = Collections.unmodifiableList(updated);
+            }
+
+            // The first user with the ID, as removeUser and updatePassword match it; null if none
+            static synchronized User user(String userId) {
+                for (User u : users) {
+                    if (u.id.equalsIgnoreCase(userId)) {
+                        return u;
+                    }
                 }
-                if (getStringValue(row.getCell(0), "").equals(studentId)
-                        && getStringValue(row.getCell(1), "").equals(date)
-                        && getStringValue(row.getCell(3), "General").equals(subject)) {
-                    Cell statusCell = row.getCell(2);
-                    if (statusCell == null) {
-                        statusCell = row.createCell(2);
+                return null;
+            }
+
+            static synchronized void removeUser(String userId) {
+                List<User> updated = new ArrayList<>(users);
+                for (int i = 0; i < updated.size(); i++) {
+                    if (updated.get(i).id.equalsIgnoreCase(userId)) {
+                        updated.remove(i);
+                        break;
                     }
-                    statusCell.setCellValue(newStatus);
-                    updated = true;
-                    break;
                 }
+                users = Collections.unmodifiableList(updated);
             }
 
-            if (updated) {
-                try (FileOutputStream fos = new FileOutputStream(file)) {
-                    workbook.write(fos);
-                } catch (Exception e) {
-                    e.printStackTrace();
+            static synchronized void updatePassword(String userId, String newPassword) {
+                List<User> updated = new ArrayList<>(users);
+                for (int i = 0; i < updated.size(); i++) {
+                    User u = updated.get(i);
+                    if (u.id.equalsIgnoreCase(userId)) {
+                        updated.set(i, new User(u.id, newPassword, u.name, u.role, u.subject));
+                        break;
+                    }
                 }
+                users = Collections.unmodifiableList(updated);
             }
 
-            try {
-                workbook.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+            // Mirrors markAttendance: drop the lecture's old rows, append the new ones
+            static synchronized boolean canAccept(String subject) {
+                return attendance.canAccept(subject);
+            }
+
+            static synchronized void replaceLecture(String date, String subject, List<AttendanceRecord> records) {
+                attendance.removeLecture(date, subject);
+                records.forEach(attendance::add);
+            }
+
+            // Mirrors updateSingleAttendanceRecord: only the first matching record changes
+            static synchronized void updateStatus(String studentId, String date, String subject, String newStatus) {
+                attendance.setStatus(studentId, date, subject, newStatus);
+            }
+
+            // An external change is picked up by an empty commit, which reloads under the store lock
+            // and cannot interleave with one of our own writes (the writer checks before each commit)
+            private static void reloadIfChanged() {
+                if (opened && Thread.currentThread() != writerThread && engine.changedExternally()) {
+                    commit(() -> {
+                    });
+                }
             }
         }
+    }
 
-        // --- This is the essential helper method ---
-        private static String getStringValue(Cell cell, String defaultValue) {
-            if (cell == null) {
-                return defaultValue;
+    // --- Columnar attendance table ---
+    // Rows are kept column-wise in primitive arrays: a student code, the date as an epoch day, a
+    // subject code and one "present" bit. Student IDs and subjects are dictionary-encoded, so each
+    // distinct string is held once, and AttendanceRecord objects are only built when rows are asked for.
+    // Removed rows are left as tombstones and squeezed out once they make up half the table.
+    // Each lecture also keeps two bitmaps over student codes (marked, present), so totals are
+    // popcounts and bit walks over the lectures in range instead of string compares over every row.
+    // Per-(month, subject) rollups of each student's counts are kept up to date on every change, so
+    // a date range costs one step per whole month plus the lectures of its partial edge months.
+    // Not thread-safe: ResidentStore only touches it under its monitor.
+    static class AttendanceTable {
+
+        private static final String PRESENT = "Present";
+        private static final String ABSENT = "Absent";
+        private static final int MIN_COMPACTION_ROWS = 1024;
+        // Below this many counter updates a report is counted on the calling thread
+        private static final long PARALLEL_WORK = 200_000;
+        // Dates that are not plain ISO dates are kept verbatim and coded from here up
+        private static final int IRREGULAR_DAY = Integer.MIN_VALUE;
+        // Rollup bucket for rows with irregular dates; it is never inside a date range
+        private static final int IRREGULAR_MONTH = Integer.MIN_VALUE >> 8;
+
+        private final Dictionary students = new Dictionary();
+        private final Dictionary subjects = new Dictionary();
+        private final Dictionary irregularDates = new Dictionary();
+        private final Map<String, Integer> dayCodes = new HashMap<>();
+        private final Map<Integer, String> dayNames = new HashMap<>();
+        private final Map<Integer, Integer> monthOfDay = new HashMap<>();
+        private final Map<Long, Rollup> rollups = new HashMap<>();
+
+        private int[] studentColumn = new int[MIN_COMPACTION_ROWS];
+        private int[] dayColumn = new int[MIN_COMPACTION_ROWS];
+        private byte[] subjectColumn = new byte[MIN_COMPACTION_ROWS];
+        private BitSet present = new BitSet();
+        private BitSet removed = new BitSet();
+        // Statuses other than Present/Absent are rare and kept per row
+        private Map<Integer, String> otherStatuses = new HashMap<>();
+        private int rows, removedRows;
+
+        // Lectures by epoch day and subject, and each day's lectures; row numbers and student codes per
+        // upper-cased student ID
+        private final Map<Long, Lecture> byLecture = new HashMap<>();
+        private final Map<Integer, List<Lecture>> byDay = new HashMap<>();
+        private final Map<String, IntList> byStudent = new HashMap<>();
+        private final Map<String, IntList> studentCodes = new HashMap<>();
+
+        void add(AttendanceRecord r) {
+            // Coded first: it is the only step that can fail, and a failure must leave no partial row
+            byte subject = encodeSubject(r.subject);
+            if (rows == studentColumn.length) {
+                int capacity = rows + (rows >> 1);
+                studentColumn = Arrays.copyOf(studentColumn, capacity);
+                dayColumn = Arrays.copyOf(dayColumn, capacity);
+                subjectColumn = Arrays.copyOf(subjectColumn, capacity);
             }
-            try {
-                String val = cell.getStringCellValue();
-                return (val == null || val.isEmpty()) ? defaultValue : val;
-            } catch (Exception e) {
-                try {
-                    // Try to read as a number and convert to string
-                    return String.valueOf((long) cell.getNumericCellValue());
-                } catch (Exception e2) {
-                    try {
-                        // Handle formula cells that result in strings
-                        return cell.getRichStringCellValue().getString();
-                    } catch (Exception e3) {
-                        try {
-                            // Handle formula cells that result in numbers
-                            return String.valueOf((long) cell.getNumericCellValue());
-                        } catch (Exception e4) {
-                            return defaultValue;
-                        }
-                    }
+            int row = rows++;
+            int knownStudents = students.size();
+            studentColumn[row] = students.encode(r.studentId);
+            if (students.size() > knownStudents) {
+                studentCodes.computeIfAbsent(studentKey(r.studentId), k -> new IntList()).add(studentColumn[row]);
+            }
+            dayColumn[row] = encodeDay(r.date);
+            subjectColumn[row] = subject;
+            setStatus(row, r.status);
+            index(row);
+            rollup(row, 1);
+        }
+
+        void clear() {
+            students.clear();
+            subjects.clear();
+            irregularDates.clear();
+            dayCodes.clear();
+            dayNames.clear();
+            monthOfDay.clear();
+            rollups.clear();
+            present.clear();
+            removed.clear();
+            otherStatuses.clear();
+            byLecture.clear();
+            byDay.clear();
+            byStudent.clear();
+            studentCodes.clear();
+            rows = 0;
+            removedRows = 0;
+        }
+
+        int size() {
+            return rows - removedRows;
+        }
+
+        // Every live row, in insertion order
+        List<AttendanceRecord> records() {
+            List<AttendanceRecord> records = new ArrayList<>(size());
+            for (int row = removed.nextClearBit(0); row < rows; row = removed.nextClearBit(row + 1)) {
+                records.add(record(row));
+            }
+            return records;
+        }
+
+        List<AttendanceRecord> forLecture(String date, String subject) {
+            Lecture lecture = byLecture.get(lectureKey(date, subject));
+            return records(lecture == null ? null : lecture.rows);
+        }
+
+        List<AttendanceRecord> forStudent(String studentId) {
+            int[] studentRows = studentRows(studentId);
+            List<AttendanceRecord> records = new ArrayList<>(studentRows.length);
+            for (int row : studentRows) {
+                records.add(record(row));
+            }
+            return records;
+        }
+
+        // Copies of the rows for a grid: every live row in insertion order, or one student's rows
+        RowView view() {
+            int[] liveRows = new int[size()];
+            int live = 0;
+            for (int row = removed.nextClearBit(0); row < rows; row = removed.nextClearBit(row + 1)) {
+                liveRows[live++] = row;
+            }
+            return new RowView(this, liveRows);
+        }
+
+        RowView viewForStudent(String studentId) {
+            return new RowView(this, studentRows(studentId));
+        }
+
+        // Newest first by epoch day; rows of the same day keep insertion order. Irregular dates sort last.
+        private int[] studentRows(String studentId) {
+            IntList rowList = byStudent.get(studentKey(studentId));
+            if (rowList == null) {
+                return new int[0];
+            }
+            // Day in the high half, reversed position in the low half: one primitive sort, read backwards
+            long[] keys = new long[rowList.size()];
+            int live = 0;
+            for (int i = 0; i < rowList.size(); i++) {
+                int row = rowList.get(i);
+                if (!removed.get(row)) {
+                    keys[live++] = ((long) dayColumn[row] << 32) | (0xFFFFFFFFL - i);
                 }
             }
+            Arrays.sort(keys, 0, live);
+            int[] studentRows = new int[live];
+            for (int k = live - 1; k >= 0; k--) {
+                studentRows[live - 1 - k] = rowList.get((int) (0xFFFFFFFFL - (keys[k] & 0xFFFFFFFFL)));
+            }
+            return studentRows;
+        }
+
+        boolean hasLecture(String date, String subject) {
+            return byLecture.containsKey(lectureKey(date, subject));
+        }
+
+        // The day's rows from its lectures, put back in insertion order
+        List<AttendanceRecord> forDate(String date) {
+            Integer day = dayCodes.get(date);
+            List<Lecture> lectures = (day == null) ? null : byDay.get(day);
+            if (lectures == null) {
+                return new ArrayList<>();
+            }
+            IntList dayRows = new IntList();
+            for (Lecture lecture : lectures) {
+                for (int i = 0; i < lecture.rows.size(); i++) {
+                    dayRows.add(lecture.rows.get(i));
+                }
+            }
+            int[] sorted = Arrays.copyOf(dayRows.items, dayRows.size());
+            Arrays.sort(sorted);
+            List<AttendanceRecord> records = new ArrayList<>(sorted.length);
+            for (int row : sorted) {
+                records.add(record(row));
+            }
+            return records;
+        }
+
+        void removeLecture(String date, String subject) {
+            Lecture lecture = byLecture.remove(lectureKey(date, subject));
+            if (lecture == null) {
+                return;
+            }
+            List<Lecture> dayLectures = byDay.get(lecture.day);
+            dayLectures.remove(lecture);
+            if (dayLectures.isEmpty()) {
+                byDay.remove(lecture.day);
+            }
+            for (int i = 0; i < lecture.rows.size(); i++) {
+                int row = lecture.rows.get(i);
+                rollup(row, -1);
+                removed.set(row);
+                otherStatuses.remove(row);
+            }
+            removedRows += lecture.rows.size();
+            if (removedRows >= MIN_COMPACTION_ROWS && removedRows * 2 >= rows) {
+                compact();
+            }
+        }
+
+        // Only the first matching row of the lecture changes, as in updateSingleAttendanceRecord
+        void setStatus(String studentId, String date, String subject, String status) {
+            Lecture lecture = byLecture.get(lectureKey(date, subject));
+            int student = students.find(studentId);
+            if (lecture == null || student < 0) {
+                return;
+            }
+            for (int i = 0; i < lecture.rows.size(); i++) {
+                int row = lecture.rows.get(i);
+                if (studentColumn[row] == student) {
+                    rollup(row, -1);
+                    setStatus(row, status);
+                    rollup(row, 1);
+                    lecture.present.set(student, present.get(row));
+                    return;
+                }
+            }
+        }
+
+        // {present, absent} over the lectures in [fromDay, toDay]; a null subject means all subjects
+        int[] totals(int fromDay, int toDay, String subject) {
+            int[] totals = new int[2];
+            for (Lecture lecture : lectures(fromDay, toDay, subject)) {
+                int attended = lecture.duplicates ? countPresent(lecture.rows) : lecture.present.cardinality();
+                totals[0] += attended;
+                totals[1] += lecture.rows.size() - attended;
+            }
+            return totals;
+        }
+
+        // {present, absent} per student ID over the lectures in range; students never marked are left out
+        Map<String, int[]> totalsByStudent(int fromDay, int toDay, String subject) {
+            List<CountUnit> units = new ArrayList<>();
+            long work = 0;
+            int code = (subject == null) ? -1 : subjects.find(subject);
+            Set<Integer> wholeMonths = new HashSet<>();
+            if (fromDay <= toDay && (subject == null || code >= 0)) {
+                YearMonth last = YearMonth.from(LocalDate.ofEpochDay(toDay));
+                for (YearMonth month = YearMonth.from(LocalDate.ofEpochDay(fromDay)); !month.isAfter(last); month = month.plusMonths(1)) {
+                    if (month.atDay(1).toEpochDay() >= fromDay && month.atEndOfMonth().toEpochDay() <= toDay) {
+                        wholeMonths.add(monthKey(month));
+                        for (int s = (code < 0 ? 0 : code); s < (code < 0 ? subjects.size() : code + 1); s++) {
+                            Rollup rollup = rollups.get(rollupKey(monthKey(month), s));
+                            if (rollup != null) {
+                                units.add(rollup::addTo);
+                                work += students.size();
+                            }
+                        }
+                    }
+                }
+            }
+            // Only the partial months at either end of the range are counted lecture by lecture
+            for (Lecture lecture : lectures(fromDay, toDay, subject)) {
+                if (!wholeMonths.contains(monthOfDay.get(lecture.day))) {
+                    units.add((m, a) -> count(lecture, m, a));
+                    work += lecture.rows.size();
+                }
+            }
+            int[][] counts;
+            int parallelism = ForkJoinPool.getCommonPoolParallelism();
+            if (work < PARALLEL_WORK || parallelism < 2 || units.size() < 2) {
+                counts = CountTask.countSerially(units, 0, units.size(), students.size());
+            } else {
+                int grain = Math.max(1, units.size() / (parallelism * 4));
+                counts = ForkJoinPool.commonPool().invoke(new CountTask(units, 0, units.size(), students.size(), grain));
+            }
+            int[] marked = counts[0], attended = counts[1];
+            Map<String, int[]> totals = new HashMap<>();
+            for (int student = 0; student < marked.length; student++) {
+                if (marked[student] > 0) {
+                    totals.put(students.decode(student), new int[]{attended[student], marked[student] - attended[student]});
+                }
+            }
+            return totals;
+        }
+
+        // {present, absent} per subject for one student (IDs compare case-insensitively), read from the
+        // rollups. Subjects are listed as the student's history lists them, most recent record first.
+        Map<String, int[]> subjectTotals(String studentId) {
+            IntList codes = studentCodes.get(studentKey(studentId));
+            Map<Integer, int[]> counts = new HashMap<>();
+            if (codes != null) {
+                for (Map.Entry<Long, Rollup> entry : rollups.entrySet()) {
+                    int subject = (int) (entry.getKey() & 0xFF);
+                    Rollup rollup = entry.getValue();
+                    for (int i = 0; i < codes.size(); i++) {
+                        int student = codes.get(i);
+                        int marked = rollup.marked(student);
+                        if (marked > 0) {
+                            int[] subjectCounts = counts.computeIfAbsent(subject, k -> new int[2]);
+                            subjectCounts[0] += rollup.present(student);
+                            subjectCounts[1] += marked - rollup.present(student);
+                        }
+                    }
+                }
+            }
+            Map<String, int[]> totals = new LinkedHashMap<>();
+            for (int row : studentRows(studentId)) {
+                if (totals.size() == counts.size()) {
+                    break;
+                }
+                int subject = subjectColumn[row] & 0xFF;
+                if (counts.containsKey(subject)) {
+                    totals.putIfAbsent(subjects.decode(subject), counts.get(subject));
+                }
+            }
+            return totals;
+        }
+
+        private List<Lecture> lectures(int fromDay, int toDay, String subject) {
+            List<Lecture> lectures = new ArrayList<>();
+            int code = (subject == null) ? -1 : subjects.find(subject);
+            if (subject != null && code < 0) {
+                return lectures;
+            }
+            for (Lecture lecture : byLecture.values()) {
+                if (lecture.day >= fromDay && lecture.day <= toDay && (code < 0 || (lecture.subject & 0xFF) == code)) {
+                    lectures.add(lecture);
+                }
+            }
+            return lectures;
+        }
+
+        // A lecture or a rollup that adds its marks to per-student counters
+        private interface CountUnit {
+
+            void addTo(int[] marked, int[] attended);
+        }
+
+        // Splits the units in halves across the common pool. Every leaf fills its own pair of counter
+        // arrays, merged on join, so workers share nothing they write; the table itself is only read,
+        // and the caller holds the ResidentStore monitor, which keeps writers out meanwhile.
+        private static class CountTask extends RecursiveTask<int[][]> {
+
+            private final List<CountUnit> units;
+            private final int from, to, width, grain;
+
+            CountTask(List<CountUnit> units, int from, int to, int width, int grain) {
+                this.units = units;
+                this.from = from;
+                this.to = to;
+                this.width = width;
+                this.grain = grain;
+            }
+
+            @Override
+            protected int[][] compute() {
+                if (to - from <= grain) {
+                    return countSerially(units, from, to, width);
+                }
+                int mid = (from + to) >>> 1;
+                CountTask left = new CountTask(units, from, mid, width, grain);
+                left.fork();
+                int[][] right = new CountTask(units, mid, to, width, grain).compute();
+                int[][] merged = left.join();
+                for (int student = 0; student < width; student++) {
+                    merged[0][student] += right[0][student];
+                    merged[1][student] += right[1][student];
+                }
+                return merged;
+            }
+
+            static int[][] countSerially(List<CountUnit> units, int from, int to, int width) {
+                int[][] counts = new int[2][width];
+                for (int i = from; i < to; i++) {
+                    units.get(i).addTo(counts[0], counts[1]);
+                }
+                return counts;
+            }
+        }
+
+        // Adds one lecture's marks to per-student counters
+        private void count(Lecture lecture, int[] marked, int[] attended) {
+            if (lecture.duplicates) {
+                for (int i = 0; i < lecture.rows.size(); i++) {
+                    int row = lecture.rows.get(i);
+                    marked[studentColumn[row]]++;
+                    if (present.get(row)) {
+                        attended[studentColumn[row]]++;
+                    }
+                }
+                return;
+            }
+            for (int s = lecture.marked.nextSetBit(0); s >= 0; s = lecture.marked.nextSetBit(s + 1)) {
+                marked[s]++;
+            }
+            for (int s = lecture.present.nextSetBit(0); s >= 0; s = lecture.present.nextSetBit(s + 1)) {
+                attended[s]++;
+            }
+        }
+
+        // Adds (sign 1) or withdraws (sign -1) one row's mark from its month's rollup
+        private void rollup(int row, int sign) {
+            long key = rollupKey(monthOfDay.get(dayColumn[row]), subjectColumn[row] & 0xFF);
+            rollups.computeIfAbsent(key, k -> new Rollup()).add(studentColumn[row], sign, present.get(row) ? sign : 0);
+        }
+
+        private int countPresent(IntList rowList) {
+            int count = 0;
+            for (int i = 0; i < rowList.size(); i++) {
+                if (present.get(rowList.get(i))) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private AttendanceRecord record(int row) {
+            return new AttendanceRecord(students.decode(studentColumn[row]), dayNames.get(dayColumn[row]),
+                    status(row), subjects.decode(subjectColumn[row] & 0xFF));
+        }
+
+        private List<AttendanceRecord> records(IntList rowList) {
+            List<AttendanceRecord> records = new ArrayList<>();
+            if (rowList != null) {
+                for (int i = 0; i < rowList.size(); i++) {
+                    int row = rowList.get(i);
+                    if (!removed.get(row)) {
+                        records.add(record(row));
+                    }
+                }
+            }
+            return records;
+        }
+
+        private String status(int row) {
+            if (!otherStatuses.isEmpty() && otherStatuses.containsKey(row)) {
+                return otherStatuses.get(row);
+            }
+            return present.get(row) ? PRESENT : ABSENT;
+        }
+
+        private void setStatus(int row, String status) {
+            present.set(row, PRESENT.equals(status));
+            if (PRESENT.equals(status) || ABSENT.equals(status)) {
+                otherStatuses.remove(row);
+            } else {
+                otherStatuses.put(row, status);
+            }
+        }
+
+        private void index(int row) {
+            Lecture lecture = byLecture.computeIfAbsent(lectureKey(dayColumn[row], subjectColumn[row]), k -> {
+                Lecture created = new Lecture(dayColumn[row], subjectColumn[row]);
+                byDay.computeIfAbsent(created.day, d -> new ArrayList<>()).add(created);
+                return created;
+            });
+            int student = studentColumn[row];
+            lecture.rows.add(row);
+            lecture.duplicates |= lecture.marked.get(student);
+            lecture.marked.set(student);
+            lecture.present.set(student, present.get(row));
+            byStudent.computeIfAbsent(studentKey(students.decode(studentColumn[row])), k -> new IntList()).add(row);
+        }
+
+        // Rewrites the columns without tombstones, keeping row order, and rebuilds the indexes
+        private void compact() {
+            BitSet keptPresent = new BitSet();
+            Map<Integer, String> keptStatuses = new HashMap<>();
+            int kept = 0;
+            for (int row = removed.nextClearBit(0); row < rows; row = removed.nextClearBit(row + 1)) {
+                studentColumn[kept] = studentColumn[row];
+                dayColumn[kept] = dayColumn[row];
+                subjectColumn[kept] = subjectColumn[row];
+                keptPresent.set(kept, present.get(row));
+                if (otherStatuses.containsKey(row)) {
+                    keptStatuses.put(kept, otherStatuses.get(row));
+                }
+                kept++;
+            }
+            present = keptPresent;
+            otherStatuses = keptStatuses;
+            removed = new BitSet();
+            rows = kept;
+            removedRows = 0;
+            byLecture.clear();
+            byDay.clear();
+            byStudent.clear();
+            for (int row = 0; row < rows; row++) {
+                index(row);
+            }
+        }
+
+        private int encodeDay(String date) {
+            Integer day = dayCodes.get(date);
+            if (day == null) {
+                day = parseDay(date);
+                dayCodes.put(date, day);
+                dayNames.put(day, date);
+                monthOfDay.put(day, day > IRREGULAR_DAY / 2 ? monthKey(YearMonth.from(LocalDate.ofEpochDay(day))) : IRREGULAR_MONTH);
+            }
+            return day;
+        }
+
+        private int parseDay(String date) {
+            try {
+                LocalDate parsed = LocalDate.parse(date, GLOBAL_DATE_FORMATTER);
+                long epochDay = parsed.toEpochDay();
+                if (parsed.format(GLOBAL_DATE_FORMATTER).equals(date) && epochDay > IRREGULAR_DAY / 2 && epochDay <= Integer.MAX_VALUE) {
+                    return (int) epochDay;
+                }
+            } catch (DateTimeParseException e) {
+                // Not an ISO date; kept verbatim below
+            }
+            return IRREGULAR_DAY + irregularDates.encode(date);
+        }
+
+        // Whether rows for this subject fit the one-byte subject code
+        boolean canAccept(String subject) {
+            return subjects.find(subject) >= 0 || subjects.size() <= 0xFF;
+        }
+
+        // Checked before encoding, so a rejected subject is not left in the dictionary either
+        private byte encodeSubject(String subject) {
+            if (!canAccept(subject)) {
+                throw new IllegalStateException("More than 256 subjects in the attendance data");
+            }
+            return (byte) subjects.encode(subject);
+        }
+
+        // Null when the lecture cannot exist because its date or subject has never been seen
+        private Long lectureKey(String date, String subject) {
+            Integer day = dayCodes.get(date);
+            int code = subjects.find(subject);
+            return (day == null || code < 0) ? null : lectureKey(day, (byte) code);
+        }
+
+        private static Long lectureKey(int day, byte subject) {
+            return ((long) day << 8) | (subject & 0xFF);
+        }
+
+        private static String studentKey(String studentId) {
+            return studentId.toUpperCase(Locale.ROOT); // student IDs compare case-insensitively
+        }
+
+        private static int monthKey(YearMonth month) {
+            return month.getYear() * 12 + month.getMonthValue() - 1;
+        }
+
+        private static long rollupKey(int month, int subject) {
+            return ((long) month << 8) | subject;
+        }
+
+        // One lecture's rows and two bitmaps indexed by student code: who was marked and who was present
+        static class Lecture {
+
+            final int day;
+            final byte subject;
+            final IntList rows = new IntList();
+            final SparseBitSet marked = new SparseBitSet(), present = new SparseBitSet();
+            // A student marked twice in one lecture cannot be counted from the bitmaps; count rows instead
+            boolean duplicates;
+
+            Lecture(int day, byte subject) {
+                this.day = day;
+                this.subject = subject;
+            }
+        }
+
+        // One (month, subject) rollup: marked and present counts indexed by student code
+        static class Rollup {
+
+            private int[] marked = new int[0], present = new int[0];
+
+            void add(int student, int markedDelta, int presentDelta) {
+                if (student >= marked.length) {
+                    int capacity = Math.max(student + 1, marked.length * 2);
+                    marked = Arrays.copyOf(marked, capacity);
+                    present = Arrays.copyOf(present, capacity);
+                }
+                marked[student] += markedDelta;
+                present[student] += presentDelta;
+            }
+
+            int marked(int student) {
+                return student < marked.length ? marked[student] : 0;
+            }
+
+            int present(int student) {
+                return student < present.length ? present[student] : 0;
+            }
+
+            void addTo(int[] markedTotals, int[] presentTotals) {
+                for (int student = 0; student < Math.min(marked.length, markedTotals.length); student++) {
+                    markedTotals[student] += marked[student];
+                    presentTotals[student] += present[student];
+                }
+            }
+        }
+
+        // A detached copy of some rows in the table's own encoding (about nine bytes a row), taken under
+        // the store lock and then owned by the EDT. Cells are decoded when asked for, so a grid over
+        // it holds no per-row objects. Status edits made in the grid are applied to the copy.
+        static class RowView {
+
+            static final RowView EMPTY = new RowView(new AttendanceTable(), new int[0]);
+
+            private final String[] studentIds, subjectNames;
+            private final Map<Integer, String> dayNames;
+            private final int[] studentColumn, dayColumn;
+            private final byte[] subjectColumn;
+            private final BitSet present = new BitSet();
+            private final Map<Integer, String> otherStatuses = new HashMap<>();
+
+            private RowView(AttendanceTable table, int[] rowNumbers) {
+                studentIds = table.students.toArray();
+                subjectNames = table.subjects.toArray();
+                dayNames = new HashMap<>(table.dayNames);
+                studentColumn = new int[rowNumbers.length];
+                dayColumn = new int[rowNumbers.length];
+                subjectColumn = new byte[rowNumbers.length];
+                for (int i = 0; i < rowNumbers.length; i++) {
+                    int row = rowNumbers[i];
+                    studentColumn[i] = table.studentColumn[row];
+                    dayColumn[i] = table.dayColumn[row];
+                    subjectColumn[i] = table.subjectColumn[row];
+                    present.set(i, table.present.get(row));
+                    if (!table.otherStatuses.isEmpty() && table.otherStatuses.containsKey(row)) {
+                        otherStatuses.put(i, table.otherStatuses.get(row));
+                    }
+                }
+            }
+
+            int size() {
+                return studentColumn.length;
+            }
+
+            int studentCode(int i) {
+                return studentColumn[i];
+            }
+
+            String studentId(int i) {
+                return studentIds[studentColumn[i]];
+            }
+
+            String date(int i) {
+                return dayNames.get(dayColumn[i]);
+            }
+
+            String subject(int i) {
+                return subjectNames[subjectColumn[i] & 0xFF];
+            }
+
+            String status(int i) {
+                if (!otherStatuses.isEmpty() && otherStatuses.containsKey(i)) {
+                    return otherStatuses.get(i);
+                }
+                return present.get(i) ? PRESENT : ABSENT;
+            }
+
+            void setStatus(int i, String status) {
+                present.set(i, PRESENT.equals(status));
+                if (PRESENT.equals(status) || ABSENT.equals(status)) {
+                    otherStatuses.remove(i);
+                } else {
+                    otherStatuses.put(i, status);
+                }
+            }
+
+            // Display name per student code, "N/A" for IDs with no user
+            String[] studentNames(Map<String, User> usersById) {
+                String[] names = new String[studentIds.length];
+                for (int code = 0; code < studentIds.length; code++) {
+                    User user = usersById.get(studentIds[code]);
+                    names[code] = (user != null) ? user.name : "N/A";
+                }
+                return names;
+            }
+
+            int studentCount() {
+                return studentIds.length;
+            }
+
+            String studentIdOf(int code) {
+                return studentIds[code];
+            }
+        }
+
+        // Assigns dense int codes to strings in first-seen order
+        static class Dictionary {
+
+            private final Map<String, Integer> codes = new HashMap<>();
+            private final List<String> values = new ArrayList<>();
+
+            int encode(String value) {
+                Integer code = codes.get(value);
+                if (code == null) {
+                    code = values.size();
+                    codes.put(value, code);
+                    values.add(value);
+                }
+                return code;
+            }
+
+            // -1 when the value has never been encoded
+            int find(String value) {
+                return codes.getOrDefault(value, -1);
+            }
+
+            String decode(int code) {
+                return values.get(code);
+            }
+
+            String[] toArray() {
+                return values.toArray(new String[0]);
+            }
+
+            int size() {
+                return values.size();
+            }
+
+            void clear() {
+                codes.clear();
+                values.clear();
+            }
+        }
+
+        // Growable list of primitive ints
+        static class IntList {
+
+            private int[] items = new int[4];
+            private int size;
+
+            void add(int value) {
+                if (size == items.length) {
+                    items = Arrays.copyOf(items, size * 2);
+                }
+                items[size++] = value;
+            }
+
+            int get(int index) {
+                return items[index];
+            }
+
+            int size() {
+                return size;
+            }
+        }
+    }
+
+    // --- Storage Engines (how ExcelDataManager persists users and attendance) ---
+    interface StorageEngine {
+
+        // Creates the store on first use (seeding the admin account) and returns its contents
+        StoreContents open() throws IOException;
+
+        StoreContents load() throws IOException;
+
+        // True when the backing file was modified by something other than this engine
+        boolean changedExternally();
+
+        void addUser(User user) throws IOException;
+
+        // Adds the whole list as one change: after a crash either all of it is in the store or none
+        void addUsers(List<User> users) throws IOException;
+
+        void removeUser(String userId) throws IOException;
+
+        void updatePassword(String userId, String newPassword) throws IOException;
+
+        // Stores the last ID number handed out for the role, kept by compaction and rewrites
+        void setIdSequence(String role, long last) throws IOException;
+
+        void replaceLecture(String date, String subject, List<AttendanceRecord> records) throws IOException;
+
+        // Records a status change durably; it reaches the main store on the next flush() at the latest
+        void stageStatus(String studentId, String date, String subject, String newStatus) throws IOException;
+
+        // Applies every staged change to the main store
+        void flush() throws IOException;
+
+        // True while there are changes that flush() has yet to apply to the main store
+        default boolean hasStagedChanges() {
+            return false;
+        }
+
+        default void updateStatus(String studentId, String date, String subject, String newStatus) throws IOException {
+            stageStatus(studentId, date, subject, newStatus);
+            flush();
+        }
+
+        // Streams a complete replacement for the store; nothing changes until it is committed
+        StoreWriter replacement() throws IOException;
+
+        // Rewrites the whole store from contents (import, compaction)
+        default void replaceAll(StoreContents contents) throws IOException {
+            try (StoreWriter writer = replacement()) {
+                for (User u : contents.users) {
+                    writer.addUser(u);
+                }
+                for (AttendanceRecord r : contents.attendance) {
+                    writer.addAttendance(r);
+                }
+                for (Map.Entry<String, Long> sequence : contents.idSequences.entrySet()) {
+                    writer.setIdSequence(sequence.getKey(), sequence.getValue());
+                }
+                writer.commit();
+            }
+        }
+
+        default boolean needsCompaction() {
+            return false;
+        }
+    }
+
+    // Rows are written out as they are added, so a store of any size is produced in constant heap.
+    // Closing without commit() discards everything written.
+    interface StoreWriter extends Closeable {
+
+        void addUser(User user) throws IOException;
+
+        void addAttendance(AttendanceRecord record) throws IOException;
+
+        void setIdSequence(String role, long last) throws IOException;
+
+        void commit() throws IOException;
+    }
+
+    static class StoreContents {
+
+        final List<User> users;
+        final List<AttendanceRecord> attendance;
+        final Map<String, Long> idSequences; // last ID number handed out, by lower-cased role
+
+        StoreContents(List<User> users, List<AttendanceRecord> attendance) {
+            this(users, attendance, new TreeMap<>());
+        }
+
+        StoreContents(List<User> users, List<AttendanceRecord> attendance, Map<String, Long> idSequences) {
+            this.users = users;
+            this.attendance = attendance;
+            this.idSequences = idSequences;
+        }
+    }
+
+    // --- XLSX engine: the original college_data.xlsx layout ---
+    // A change is only appended to a journal next to the workbook, so a save costs O(change); load()
+    // reads the workbook with the journal applied. flush() applies the journal in one rewrite of the
+    // workbook to a temp file, synced and moved over the original. ExcelDataManager flushes once
+    // writes go quiet and at exit, and compaction rewrites the workbook once the journal grows large.
+    // A crash at any point leaves either the old or the new workbook on disk, plus the journal.
+    static class XlsxStorageEngine implements StorageEngine {
+
+        private static final String USERS_SHEET = "Users";
+        private static final String ATTENDANCE_SHEET = "Attendance";
+        // Last ID number handed out per role; older workbooks have no such sheet
+        private static final String ID_SEQUENCES_SHEET = "IdSequences";
+        private static final int ROW_WINDOW = 100;
+        private static final long MAX_JOURNAL_BYTES = 4 * 1024 * 1024;
+        private final File file;
+        private final RecordLog journal;
+        private long loadedModified = -1, loadedSize = -1, journalModified = -1, journalSize = -1;
+
+        XlsxStorageEngine(File file) {
+            this.file = file;
+            this.journal = new RecordLog(new File(file.getPath() + ".journal"));
+        }
+
+        @Override
+        public StoreContents open() throws IOException {
+            // A workbook already in the current layout with nothing left to replay only needs streaming
+            if (file.exists() && !journal.file().exists()) {
+                StoreContents contents = new StoreContents(new ArrayList<>(), new ArrayList<>());
+                if (stream(file, contents.users::add, contents.attendance::add, contents.idSequences::put)) {
+                    stamp();
+                    return contents;
+                }
+            }
+            if (!file.exists() || !stream(file, u -> { }, r -> { })) {
+                upgradeLayout();
+            }
+            // Changes journaled before a crash are applied now, by the same one-pass rewrite as any flush
+            flush();
+            return load();
+        }
+
+        // Creates the workbook or adds what older versions lack: the sheets, the Subject columns and the admin row
+        private void upgradeLayout() throws IOException {
+            try (Workbook workbook = file.exists() ? readWorkbook() : new XSSFWorkbook()) {
+                Sheet usersSheet = workbook.getSheet(USERS_SHEET);
+                if (usersSheet == null) {
+                    usersSheet = workbook.createSheet(USERS_SHEET);
+                    Row header = usersSheet.createRow(0);
+                    header.createCell(0).setCellValue("ID");
+                    header.createCell(1).setCellValue("Password");
+                    header.createCell(2).setCellValue("Name");
+                    header.createCell(3).setCellValue("Role");
+                    header.createCell(4).setCellValue("Subject");
+                    Row adminRow = usersSheet.createRow(1);
+                    adminRow.createCell(0).setCellValue("admin");
+                    adminRow.createCell(1).setCellValue(Passwords.hash("admin123"));
+                    adminRow.createCell(2).setCellValue("Administrator");
+                    adminRow.createCell(3).setCellValue("Admin");
+                    adminRow.createCell(4).setCellValue("");
+                } else {
+                    Row header = usersSheet.getRow(0);
+                    if (header == null) {
+                        header = usersSheet.createRow(0);
+                    }
+                    if (header.getCell(4) == null) {
+                        header.createCell(4).setCellValue("Subject");
+                    }
+                }
+                Sheet attendanceSheet = workbook.getSheet(ATTENDANCE_SHEET);
+                if (attendanceSheet == null) {
+                    attendanceSheet = workbook.createSheet(ATTENDANCE_SHEET);
+                    Row attHeader = attendanceSheet.createRow(0);
+                    attHeader.createCell(0).setCellValue("StudentID");
+                    attHeader.createCell(1).setCellValue("Date");
+                    attHeader.createCell(2).setCellValue("Status");
+                    attHeader.createCell(3).setCellValue("Subject");
+                } else {
+                    Row header = attendanceSheet.getRow(0);
+                    if (header == null) {
+                        header = attendanceSheet.createRow(0);
+                    }
+                    if (header.getCell(3) == null) {
+                        header.createCell(3).setCellValue("Subject");
+                    }
+                }
+                writeWorkbook(workbook);
+            }
+        }
+
+        // The workbook plus whatever another instance has journaled but not yet flushed into it
+        @Override
+        public StoreContents load() throws IOException {
+            JournalDelta delta = new JournalDelta();
+            journal.replay(delta::read, false);
+            List<User> users = new ArrayList<>();
+            List<AttendanceRecord> attendance = new ArrayList<>();
+            Map<String, Long> idSequences = new TreeMap<>();
+            stream(file, users::add, record -> {
+                if (delta.keep(record)) {
+                    attendance.add(record);
+                }
+            }, idSequences::put);
+            delta.replacedLectures.values().forEach(attendance::addAll);
+            for (Consumer<List<User>> edit : delta.userEdits) {
+                edit.accept(users);
+            }
+            delta.idSequences.forEach((role, last) -> idSequences.merge(role, last, Math::max));
+            stamp();
+            return new StoreContents(users, attendance, idSequences);
+        }
+
+        static boolean stream(File source, Consumer<User> users, Consumer<AttendanceRecord> attendance) throws IOException {
+            return stream(source, users, attendance, (role, last) -> { });
+        }
+
+        // Streams the sheets through POI's SAX event API: each row is handed to the consumers as the
+        // XML is parsed, so no workbook object model is built and memory does not grow with the file.
+        // Returns false if a sheet is missing or still has a header from before the Subject column.
+        static boolean stream(File source, Consumer<User> users, Consumer<AttendanceRecord> attendance, ObjLongConsumer<String> idSequences)
+                throws IOException {
+            boolean usersCurrent = false, attendanceCurrent = false;
+            try (OPCPackage pkg = OPCPackage.open(source, PackageAccess.READ)) {
+                XSSFReader reader = new XSSFReader(pkg);
+                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+                StylesTable styles = reader.getStylesTable();
+                XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+                while (sheets.hasNext()) {
+                    try (InputStream sheet = sheets.next()) {
+                        if (USERS_SHEET.equals(sheets.getSheetName())) {
+                            RowCollector rows = new RowCollector(5, row -> {
+                                if (row[0] != null) {
+                                    users.accept(new User(value(row, 0, ""), value(row, 1, ""), value(row, 2, ""), value(row, 3, ""), value(row, 4, "")));
+                                }
+                            });
+                            parse(sheet, styles, strings, rows);
+                            usersCurrent = rows.header != null && rows.header[4] != null;
+                        } else if (ATTENDANCE_SHEET.equals(sheets.getSheetName())) {
+                            RowCollector rows = new RowCollector(4, row -> {
+                                if (!value(row, 0, "").isEmpty()) {
+                                    attendance.accept(new AttendanceRecord(value(row, 0, ""), value(row, 1, ""), value(row, 2, ""), value(row, 3, "General")));
+                                }
+                            });
+                            parse(sheet, styles, strings, rows);
+                            attendanceCurrent = rows.header != null && rows.header[3] != null;
+                        } else if (ID_SEQUENCES_SHEET.equals(sheets.getSheetName())) {
+                            parse(sheet, styles, strings, new RowCollector(2, row -> {
+                                String last = value(row, 1, "");
+                                if (row[0] != null && last.matches("[0-9]{1,18}")) {
+                                    idSequences.accept(row[0].toLowerCase(Locale.ROOT), Long.parseLong(last));
+                                }
+                            }));
+                        }
+                    }
+                }
+            } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+                throw new IOException("Cannot read " + source, e);
+            }
+            return usersCurrent && attendanceCurrent;
+        }
+
+        // Streams the first sheet of any workbook, whatever it is called: the first width cells of each
+        // row after the header, with the row's 0-based number
+        static void streamFirstSheet(File source, int width, ObjIntConsumer<String[]> rows) throws IOException {
+            try (OPCPackage pkg = OPCPackage.open(source, PackageAccess.READ)) {
+                XSSFReader reader = new XSSFReader(pkg);
+                Iterator<InputStream> sheets = reader.getSheetsData();
+                if (sheets.hasNext()) {
+                    try (InputStream sheet = sheets.next()) {
+                        parse(sheet, reader.getStylesTable(), new ReadOnlySharedStringsTable(pkg), new RowCollector(width, rows));
+                    }
+                }
+            } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+                throw new IOException("Cannot read " + source, e);
+            }
+        }
+
+        private static void parse(InputStream sheet, StylesTable styles, ReadOnlySharedStringsTable strings, RowCollector rows)
+                throws IOException, SAXException, ParserConfigurationException {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, rows, new DataFormatter(), false));
+            parser.parse(new InputSource(sheet));
+        }
+
+        // Same defaulting as getStringValue: a missing or empty cell reads as defaultValue
+        private static String value(String[] row, int column, String defaultValue) {
+            String v = row[column];
+            return (v == null || v.isEmpty()) ? defaultValue : v;
+        }
+
+        // Collects one row's cells from the SAX callbacks and passes it on at the end of the row
+        private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+            private final int width;
+            private final ObjIntConsumer<String[]> sink;
+            private String[] header, row;
+            private int nextColumn;
+
+            RowCollector(int width, Consumer<String[]> sink) {
+                this(width, (row, rowNum) -> sink.accept(row));
+            }
+
+            // The sink also gets each row's 0-based row number
+            RowCollector(int width, ObjIntConsumer<String[]> sink) {
+                this.width = width;
+                this.sink = sink;
+            }
+
+            @Override
+            public void startRow(int rowNum) {
+                row = new String[width];
+                nextColumn = 0;
+            }
+
+            @Override
+            public void endRow(int rowNum) {
+                if (rowNum == 0) {
+                    header = row;
+                } else {
+                    sink.accept(row, rowNum);
+                }
+            }
+
+            @Override
+            public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                int column = (cellReference == null) ? nextColumn : new CellReference(cellReference).getCol();
+                nextColumn = column + 1;
+                if (column < width) {
+                    row[column] = formattedValue;
+                }
+            }
+        }
+
+        @Override
+        public boolean changedExternally() {
+            return file.lastModified() != loadedModified || file.length() != loadedSize
+                    || journal.file().lastModified() != journalModified || journal.file().length() != journalSize;
+        }
+
+        @Override
+        public void addUser(User user) throws IOException {
+            commit(out -> RecordLog.writeFields(out, RecordLog.ADD_USER, user.id, user.password, user.name, user.role, user.subject));
+        }
+
+        @Override
+        public void addUsers(List<User> users) throws IOException {
+            commit(out -> RecordLog.writeUsers(out, users));
+        }
+
+        @Override
+        public void removeUser(String userId) throws IOException {
+            commit(out -> RecordLog.writeFields(out, RecordLog.REMOVE_USER, userId));
+        }
+
+        @Override
+        public void updatePassword(String userId, String newPassword) throws IOException {
+            commit(out -> RecordLog.writeFields(out, RecordLog.SET_PASSWORD, userId, newPassword));
+        }
+
+        @Override
+        public void setIdSequence(String role, long last) throws IOException {
+            commit(out -> RecordLog.writeIdSequence(out, role, last));
+        }
+
+        @Override
+        public void replaceLecture(String date, String subject, List<AttendanceRecord> records) throws IOException {
+            commit(out -> RecordLog.writeLecture(out, date, subject, records));
+        }
+
+        @Override
+        public void stageStatus(String studentId, String date, String subject, String newStatus) throws IOException {
+            commit(out -> RecordLog.writeFields(out, RecordLog.SET_STATUS, studentId, date, subject, newStatus));
+        }
+
+        @Override
+        public boolean hasStagedChanges() {
+            return journal.file().exists();
+        }
+
+        @Override
+        public boolean needsCompaction() {
+            return journal.file().length() > MAX_JOURNAL_BYTES;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!journal.file().exists()) {
+                return;
+            }
+            JournalDelta delta = new JournalDelta();
+            journal.replay(delta::read, true);
+            rewrite(delta);
+            journal.clear();
+            stamp();
+        }
+
+        // One streaming pass: attendance rows are read with the SAX reader, edited by the delta on the
+        // way through and written by SXSSF, so heap use follows the row window and the size of the
+        // pending changes rather than the attendance history. The Users sheet is small and is edited
+        // as a list.
+        private void rewrite(JournalDelta delta) throws IOException {
+            List<User> users = new ArrayList<>();
+            Map<String, Long> idSequences = new TreeMap<>();
+            try (StreamingWorkbook out = new StreamingWorkbook()) {
+                stream(file, users::add, record -> {
+                    if (delta.keep(record)) {
+                        out.addAttendance(record);
+                    }
+                }, idSequences::put);
+                delta.idSequences.forEach((role, last) -> idSequences.merge(role, last, Math::max));
+                idSequences.forEach(out::setIdSequence);
+                for (List<AttendanceRecord> records : delta.replacedLectures.values()) {
+                    records.forEach(out::addAttendance);
+                }
+                for (Consumer<List<User>> edit : delta.userEdits) {
+                    edit.accept(users);
+                }
+                users.forEach(out::addUser);
+                out.writeTo(file);
+            }
+            stamp();
+        }
+
+        // The net effect of the journal in the shape a single pass needs. It holds only the journaled
+        // changes, replayed in order with the same semantics as the workbook edits they stand for.
+        private static class JournalDelta {
+
+            private final List<Consumer<List<User>>> userEdits = new ArrayList<>();
+            private final Map<String, List<AttendanceRecord>> replacedLectures = new LinkedHashMap<>();
+            private final Map<String, Map<String, String>> statuses = new HashMap<>();
+            private final Map<String, Long> idSequences = new HashMap<>();
+
+            void read(DataInputStream in) throws IOException {
+                byte op = in.readByte();
+                switch (op) {
+                    case RecordLog.ADD_USER: {
+                        User user = new User(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+                        userEdits.add(users -> {
+                            if (findUser(users, user.id) == null) {
+                                users.add(user);
+                            }
+                        });
+                        break;
+                    }
+                    case RecordLog.ADD_USERS: {
+                        List<User> added = RecordLog.readUsers(in);
+                        userEdits.add(users -> {
+                            Set<String> ids = new HashSet<>();
+                            users.forEach(u -> ids.add(u.id.toLowerCase(Locale.ROOT)));
+                            for (User user : added) {
+                                if (ids.add(user.id.toLowerCase(Locale.ROOT))) {
+                                    users.add(user);
+                                }
+                            }
+                        });
+                        break;
+                    }
+                    case RecordLog.REMOVE_USER: {
+                        String id = in.readUTF();
+                        userEdits.add(users -> users.remove(findUser(users, id)));
+                        break;
+                    }
+                    case RecordLog.SET_PASSWORD: {
+                        String id = in.readUTF(), newPassword = in.readUTF();
+                        userEdits.add(users -> {
+                            User user = findUser(users, id);
+                            if (user != null) {
+                                user.password = newPassword;
+                            }
+                        });
+                        break;
+                    }
+                    case RecordLog.SET_ID_SEQUENCE: {
+                        String role = in.readUTF();
+                        idSequences.merge(role, in.readLong(), Math::max);
+                        break;
+                    }
+                    case RecordLog.REPLACE_LECTURE: {
+                        String date = in.readUTF(), subject = in.readUTF();
+                        List<AttendanceRecord> records = new ArrayList<>();
+                        for (int i = in.readInt(); i > 0; i--) {
+                            String studentId = in.readUTF(), status = in.readUTF();
+                            records.add(new AttendanceRecord(studentId, date, status, subject));
+                        }
+                        String lecture = date + "|" + subject;
+                        // Re-inserted so the lecture lands after any lecture replaced before it
+                        replacedLectures.remove(lecture);
+                        replacedLectures.put(lecture, records);
+                        statuses.remove(lecture);
+                        break;
+                    }
+                    case RecordLog.SET_STATUS: {
+                        String studentId = in.readUTF(), date = in.readUTF(), subject = in.readUTF(), newStatus = in.readUTF();
+                        String lecture = date + "|" + subject;
+                        List<AttendanceRecord> replaced = replacedLectures.get(lecture);
+                        if (replaced == null) {
+                            statuses.computeIfAbsent(lecture, k -> new HashMap<>()).put(studentId, newStatus);
+                        } else {
+                            replaced.stream().filter(r -> r.studentId.equals(studentId)).findFirst().ifPresent(r -> r.status = newStatus);
+                        }
+                        break;
+                    }
+                    default:
+                        throw new IOException("Unknown journal operation " + op);
+                }
+            }
+
+            // Rows of a replaced lecture are dropped; a staged status edit changes the first matching row
+            boolean keep(AttendanceRecord record) {
+                String lecture = record.date + "|" + record.subject;
+                if (replacedLectures.containsKey(lecture)) {
+                    return false;
+                }
+                Map<String, String> lectureStatuses = statuses.get(lecture);
+                String newStatus = (lectureStatuses == null) ? null : lectureStatuses.remove(record.studentId);
+                if (newStatus != null) {
+                    record.status = newStatus;
+                }
+                return true;
+            }
+
+            private static User findUser(List<User> users, String id) {
+                for (User user : users) {
+                    if (user.id.equalsIgnoreCase(id)) {
+                        return user;
+                    }
+                }
+                return null;
+            }
+        }
+
+        // SXSSF writer for the Users/Attendance layout. Only the last ROW_WINDOW rows of each sheet stay
+        // in memory; older rows are flushed to a temp file, so writing any number of rows costs constant heap.
+        private static class StreamingWorkbook implements Closeable {
+
+            private final SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+            private final Sheet users = workbook.createSheet(USERS_SHEET);
+            private final Sheet attendance = workbook.createSheet(ATTENDANCE_SHEET);
+            private final Sheet idSequences = workbook.createSheet(ID_SEQUENCES_SHEET);
+            private int userRows, attendanceRows, idSequenceRows;
+
+            StreamingWorkbook() {
+                writeRow(users.createRow(userRows++), "ID", "Password", "Name", "Role", "Subject");
+                writeRow(attendance.createRow(attendanceRows++), "StudentID", "Date", "Status", "Subject");
+                writeRow(idSequences.createRow(idSequenceRows++), "Role", "LastID");
+            }
+
+            void setIdSequence(String role, long last) {
+                writeRow(idSequences.createRow(idSequenceRows++), role, Long.toString(last));
+            }
+
+            void addUser(User u) {
+                writeRow(users.createRow(nextRow(userRows++)), u.id, u.password, u.name, u.role, u.subject);
+            }
+
+            void addAttendance(AttendanceRecord r) {
+                writeRow(attendance.createRow(nextRow(attendanceRows++)), r.studentId, r.date, r.status, r.subject);
+            }
+
+            private static int nextRow(int row) {
+                if (row > SpreadsheetVersion.EXCEL2007.getLastRowIndex()) {
+                    throw new IllegalStateException("A sheet holds at most " + SpreadsheetVersion.EXCEL2007.getMaxRows()
+                            + " rows; use the log engine (-Dattendance.storage=log) for more data");
+                }
+                return row;
+            }
+
+            void writeTo(File target) throws IOException {
+                writeAtomically(workbook, target);
+            }
+
+            @Override
+            public void close() throws IOException {
+                workbook.close();
+                workbook.dispose();
+            }
+        }
+
+        @Override
+        public StoreWriter replacement() {
+            StreamingWorkbook workbook = new StreamingWorkbook();
+            return new StoreWriter() {
+                @Override
+                public void addUser(User user) {
+                    workbook.addUser(user);
+                }
+
+                @Override
+                public void addAttendance(AttendanceRecord record) {
+                    workbook.addAttendance(record);
+                }
+
+                @Override
+                public void setIdSequence(String role, long last) {
+                    workbook.setIdSequence(role, last);
+                }
+
+                @Override
+                public void commit() throws IOException {
+                    workbook.writeTo(file);
+                    journal.clear();
+                    stamp();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    workbook.close();
+                }
+            };
+        }
+
+        private void commit(RecordLog.FrameWriter change) throws IOException {
+            journal.append(change);
+            stamp();
+        }
+
+        // Writes contents in the Users/Attendance layout that open() creates
+        static void export(StoreContents contents, File target) throws IOException {
+            try (StreamingWorkbook workbook = new StreamingWorkbook()) {
+                contents.users.forEach(workbook::addUser);
+                contents.attendance.forEach(workbook::addAttendance);
+                contents.idSequences.forEach(workbook::setIdSequence);
+                workbook.writeTo(target);
+            }
+        }
+
+        private static void writeRow(Row row, String... values) {
+            for (int i = 0; i < values.length; i++) {
+                row.createCell(i).setCellValue(values[i]);
+            }
+        }
+
+        // Never truncates the live file: write a sibling temp file, sync it, then rename over the target
+        private static void writeAtomically(Workbook workbook, File target) throws IOException {
+            File tmp = new File(target.getPath() + ".tmp");
+            try (FileOutputStream fos = new FileOutputStream(tmp)) {
+                workbook.write(fos);
+                fos.getFD().sync();
+            }
+            RecordLog.moveIntoPlace(tmp, target);
+        }
+
+        private Workbook readWorkbook() throws IOException {
+            try (FileInputStream fis = new FileInputStream(file)) {
+                Workbook workbook = new XSSFWorkbook(fis);
+                stamp();
+                return workbook;
+            }
+        }
+
+        private void writeWorkbook(Workbook workbook) throws IOException {
+            writeAtomically(workbook, file);
+            stamp();
+        }
+
+        // Records the workbook and the journal as this engine last left them
+        private void stamp() {
+            loadedModified = file.lastModified();
+            loadedSize = file.length();
+            journalModified = journal.file().lastModified();
+            journalSize = journal.file().length();
+        }
+    }
+
+    // --- Append-only file of length-prefixed binary frames ---
+    // Used as the log engine's data file and as the XLSX engine's write-ahead journal. Appends are
+    // forced to disk before returning. Replay stops at a frame torn by a crash mid-append; only a
+    // caller holding the store lock may cut it off, since to anyone else it may be an append in flight.
+    static class RecordLog {
+
+        static final byte ADD_USER = 1, REMOVE_USER = 2, SET_PASSWORD = 3;
+        static final byte ADD_ATTENDANCE = 4, REPLACE_LECTURE = 5, SET_STATUS = 6, ADD_USERS = 7, SET_ID_SEQUENCE = 8;
+        private static final int MAGIC = 0x4154544C; // "ATTL"
+
+        private final File file;
+        private FileChannel channel;
+        private Object channelKey; // identity of the file the channel was opened on
+
+        RecordLog(File file) {
+            this.file = file;
+        }
+
+        File file() {
+            return file;
+        }
+
+        // Another instance may have compacted (renamed over) or deleted the file since the last append;
+        // the channel would then still point at the old file, so it is reopened on the current one
+        synchronized void append(FrameWriter body) throws IOException {
+            if (channel != null && (channelKey == null || !channelKey.equals(fileKey()))) {
+                closeChannel();
+            }
+            if (channel == null) {
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                channelKey = fileKey();
+                if (channel.size() == 0) {
+                    write(channel, ByteBuffer.allocate(4).putInt(0, MAGIC));
+                }
+            }
+            write(channel, ByteBuffer.wrap(frame(body)));
+            channel.force(false);
+        }
+
+        // Hands every complete frame to the reader in order; a missing file replays nothing
+        synchronized void replay(FrameReader reader, boolean repairTornTail) throws IOException {
+            if (!file.exists() || file.length() == 0) {
+                return;
+            }
+            long fileLength = file.length(), validLength = 4;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Not an attendance log: " + file);
+                }
+                while (validLength < fileLength) {
+                    byte[] frame;
+                    try {
+                        int length = in.readInt();
+                        if (length <= 0 || validLength + 4 + length > fileLength) {
+                            break;
+                        }
+                        frame = new byte[length];
+                        in.readFully(frame);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    reader.read(new DataInputStream(new ByteArrayInputStream(frame)));
+                    validLength += 4 + frame.length;
+                }
+            }
+            if (repairTornTail && validLength < fileLength) {
+                closeChannel();
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(validLength);
+                }
+            }
+        }
+
+        // Writes a complete new log next to this one; commit() syncs it and swaps it in atomically
+        Rewrite rewrite() throws IOException {
+            return new Rewrite();
+        }
+
+        class Rewrite implements Closeable {
+
+            private final File tmp = new File(file.getPath() + ".tmp");
+            private final FileOutputStream fos;
+            private final DataOutputStream out;
+            private boolean committed;
+
+            private Rewrite() throws IOException {
+                fos = new FileOutputStream(tmp);
+                out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16));
+                out.writeInt(MAGIC);
+            }
+
+            void append(FrameWriter body) throws IOException {
+                out.write(frame(body));
+            }
+
+            void commit() throws IOException {
+                out.flush();
+                fos.getFD().sync();
+                out.close();
+                synchronized (RecordLog.this) {
+                    closeChannel();
+                    moveIntoPlace(tmp, file);
+                }
+                committed = true;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!committed) {
+                    out.close();
+                    Files.deleteIfExists(tmp.toPath());
+                }
+            }
+        }
+
+        synchronized void clear() throws IOException {
+            closeChannel();
+            Files.deleteIfExists(file.toPath());
+        }
+
+        // Null when the file is missing or the platform has no file keys
+        private Object fileKey() throws IOException {
+            try {
+                return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        private void closeChannel() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+
+        static void moveIntoPlace(File source, File target) throws IOException {
+            try {
+                Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        static void writeFields(DataOutputStream out, byte op, String... fields) throws IOException {
+            out.writeByte(op);
+            for (String field : fields) {
+                out.writeUTF(field);
+            }
+        }
+
+        static void writeUsers(DataOutputStream out, List<User> users) throws IOException {
+            out.writeByte(ADD_USERS);
+            out.writeInt(users.size());
+            for (User u : users) {
+                writeFields(out, ADD_USER, u.id, u.password, u.name, u.role, u.subject);
+            }
+        }
+
+        static List<User> readUsers(DataInputStream in) throws IOException {
+            List<User> users = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                if (in.readByte() != ADD_USER) {
+                    throw new IOException("Corrupt user batch");
+                }
+                users.add(new User(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF()));
+            }
+            return users;
+        }
+
+        static void writeIdSequence(DataOutputStream out, String role, long last) throws IOException {
+            writeFields(out, SET_ID_SEQUENCE, role.toLowerCase(Locale.ROOT));
+            out.writeLong(last);
+        }
+
+        static void writeLecture(DataOutputStream out, String date, String subject, List<AttendanceRecord> records) throws IOException {
+            writeFields(out, REPLACE_LECTURE, date, subject);
+            out.writeInt(records.size());
+            for (AttendanceRecord r : records) {
+                out.writeUTF(r.studentId);
+                out.writeUTF(r.status);
+            }
+        }
+
+        private static byte[] frame(FrameWriter body) throws IOException {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            body.write(new DataOutputStream(payload));
+            ByteArrayOutputStream framed = new ByteArrayOutputStream(payload.size() + 4);
+            new DataOutputStream(framed).writeInt(payload.size());
+            payload.writeTo(framed);
+            return framed.toByteArray();
+        }
+
+        private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        interface FrameWriter {
+
+            void write(DataOutputStream out) throws IOException;
+        }
+
+        interface FrameReader {
+
+            void read(DataInputStream in) throws IOException;
+        }
+    }
+
+    // --- Log engine: the RecordLog itself is the store ---
+    // Every change is appended as one frame, so a write costs O(change) instead of O(file). Opening
+    // replays the frames; once the log outgrows its last compaction it is rewritten as a snapshot.
+    static class LogStorageEngine implements StorageEngine {
+
+        private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+
+        private final RecordLog log;
+        private final File file, importFrom;
+        private long compactedSize, loadedModified = -1, loadedSize = -1;
+
+        LogStorageEngine(File file, File importFrom) {
+            this.file = file;
+            this.importFrom = importFrom;
+            this.log = new RecordLog(file);
+        }
+
+        @Override
+        public StoreContents open() throws IOException {
+            if (file.exists()) {
+                StoreContents contents = read(true);
+                compactedSize = file.length();
+                return contents;
+            }
+            // First start: take over an existing workbook, or seed the same admin account it would have
+            StoreContents initial = importFrom.exists()
+                    ? new XlsxStorageEngine(importFrom).load()
+                    : new StoreContents(new ArrayList<>(Collections.singletonList(new User("admin", Passwords.hash("admin123"), "Administrator", "Admin"))), new ArrayList<>());
+            replaceAll(initial);
+            return initial;
+        }
+
+        @Override
+        public StoreContents load() throws IOException {
+            return read(false);
+        }
+
+        private StoreContents read(boolean repairTornTail) throws IOException {
+            Replay replay = new Replay();
+            log.replay(replay::apply, repairTornTail);
+            stamp();
+            return replay.contents();
+        }
+
+        // Applies frames in O(frames + rows). A replaced lecture's rows are found through a per-lecture
+        // index and left as nulls until contents(); a status edit finds its row through a per-student
+        // index, built for a lecture the first time one of its rows is edited.
+        private static class Replay {
+
+            private final StoreContents contents = new StoreContents(new ArrayList<>(), new ArrayList<>());
+            private final List<AttendanceRecord> rows = new ArrayList<>(); // null where a row was removed
+            private final Map<String, AttendanceTable.IntList> lectures = new HashMap<>();
+            private final Map<String, Map<String, Integer>> lectureStudents = new HashMap<>(); // first row per student ID
+
+            void apply(DataInputStream in) throws IOException {
+                List<User> users = contents.users;
+                byte op = in.readByte();
+                switch (op) {
+                    case RecordLog.ADD_USER: {
+                        String id = in.readUTF(), password = in.readUTF(), name = in.readUTF(), role = in.readUTF(), subject = in.readUTF();
+                        users.add(new User(id, password, name, role, subject));
+                        break;
+                    }
+                    case RecordLog.ADD_USERS:
+                        users.addAll(RecordLog.readUsers(in));
+                        break;
+                    case RecordLog.REMOVE_USER: {
+                        String id = in.readUTF();
+                        for (int i = 0; i < users.size(); i++) {
+                            if (users.get(i).id.equalsIgnoreCase(id)) {
+                                users.remove(i);
+                                break;
+                            }
+                        }
+                        break;
+                    }
+                    case RecordLog.SET_PASSWORD: {
+                        String id = in.readUTF(), password = in.readUTF();
+                        users.stream().filter(u -> u.id.equalsIgnoreCase(id)).findFirst().ifPresent(u -> u.password = password);
+                        break;
+                    }
+                    case RecordLog.SET_ID_SEQUENCE: {
+                        String role = in.readUTF();
+                        contents.idSequences.merge(role, in.readLong(), Math::max);
+                        break;
+                    }
+                    case RecordLog.ADD_ATTENDANCE: {
+                        String studentId = in.readUTF(), date = in.readUTF(), status = in.readUTF(), subject = in.readUTF();
+                        add(new AttendanceRecord(studentId, date, status, subject));
+                        break;
+                    }
+                    case RecordLog.REPLACE_LECTURE: {
+                        String date = in.readUTF(), subject = in.readUTF();
+                        removeLecture(date + "|" + subject);
+                        for (int i = in.readInt(); i > 0; i--) {
+                            String studentId = in.readUTF(), status = in.readUTF();
+                            add(new AttendanceRecord(studentId, date, status, subject));
+                        }
+                        break;
+                    }
+                    case RecordLog.SET_STATUS: {
+                        String studentId = in.readUTF(), date = in.readUTF(), subject = in.readUTF(), status = in.readUTF();
+                        Integer row = studentsOf(date + "|" + subject).get(studentId);
+                        if (row != null) {
+                            rows.get(row).status = status;
+                        }
+                        break;
+                    }
+                    default:
+                        throw new IOException("Unknown log operation " + op);
+                }
+            }
+
+            private void add(AttendanceRecord record) {
+                String lecture = record.date + "|" + record.subject;
+                lectures.computeIfAbsent(lecture, k -> new AttendanceTable.IntList()).add(rows.size());
+                Map<String, Integer> students = lectureStudents.get(lecture);
+                if (students != null) {
+                    students.putIfAbsent(record.studentId, rows.size());
+                }
+                rows.add(record);
+            }
+
+            private void removeLecture(String lecture) {
+                AttendanceTable.IntList removed = lectures.remove(lecture);
+                lectureStudents.remove(lecture);
+                for (int i = 0; removed != null && i < removed.size(); i++) {
+                    rows.set(removed.get(i), null);
+                }
+            }
+
+            private Map<String, Integer> studentsOf(String lecture) {
+                return lectureStudents.computeIfAbsent(lecture, k -> {
+                    Map<String, Integer> students = new HashMap<>();
+                    AttendanceTable.IntList lectureRows = lectures.get(lecture);
+                    for (int i = 0; lectureRows != null && i < lectureRows.size(); i++) {
+                        students.putIfAbsent(rows.get(lectureRows.get(i)).studentId, lectureRows.get(i));
+                    }
+                    return students;
+                });
+            }
+
+            StoreContents contents() {
+                for (AttendanceRecord record : rows) {
+                    if (record != null) {
+                        contents.attendance.add(record);
+                    }
+                }
+                return contents;
+            }
+        }
+
+        @Override
+        public boolean changedExternally() {
+            return file.lastModified() != loadedModified || file.length() != loadedSize;
+        }
+
+        @Override
+        public void addUser(User user) throws IOException {
+            append(out -> RecordLog.writeFields(out, RecordLog.ADD_USER, user.id, user.password, user.name, user.role, user.subject));
+        }
+
+        @Override
+        public void addUsers(List<User> users) throws IOException {
+            append(out -> RecordLog.writeUsers(out, users));
+        }
+
+        @Override
+        public void removeUser(String userId) throws IOException {
+            append(out -> RecordLog.writeFields(out, RecordLog.REMOVE_USER, userId));
+        }
+
+        @Override
+        public void updatePassword(String userId, String newPassword) throws IOException {
+            append(out -> RecordLog.writeFields(out, RecordLog.SET_PASSWORD, userId, newPassword));
+        }
+
+        @Override
+        public void setIdSequence(String role, long last) throws IOException {
+            append(out -> RecordLog.writeIdSequence(out, role, last));
+        }
+
+        @Override
+        public void replaceLecture(String date, String subject, List<AttendanceRecord> records) throws IOException {
+            append(out -> RecordLog.writeLecture(out, date, subject, records));
+        }
+
+        @Override
+        public void stageStatus(String studentId, String date, String subject, String newStatus) throws IOException {
+            append(out -> RecordLog.writeFields(out, RecordLog.SET_STATUS, studentId, date, subject, newStatus));
+        }
+
+        // Appended frames already are the store
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public boolean needsCompaction() {
+            return file.length() > Math.max(MIN_COMPACTION_BYTES, 2 * compactedSize);
+        }
+
+        @Override
+        public StoreWriter replacement() throws IOException {
+            RecordLog.Rewrite rewrite = log.rewrite();
+            return new StoreWriter() {
+                @Override
+                public void addUser(User u) throws IOException {
+                    rewrite.append(out -> RecordLog.writeFields(out, RecordLog.ADD_USER, u.id, u.password, u.name, u.role, u.subject));
+                }
+
+                @Override
+                public void addAttendance(AttendanceRecord r) throws IOException {
+                    rewrite.append(out -> RecordLog.writeFields(out, RecordLog.ADD_ATTENDANCE, r.studentId, r.date, r.status, r.subject));
+                }
+
+                @Override
+                public void setIdSequence(String role, long last) throws IOException {
+                    rewrite.append(out -> RecordLog.writeIdSequence(out, role, last));
+                }
+
+                @Override
+                public void commit() throws IOException {
+                    rewrite.commit();
+                    compactedSize = file.length();
+                    stamp();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    rewrite.close();
+                }
+            };
+        }
+
+        private void append(RecordLog.FrameWriter change) throws IOException {
+            log.append(change);
+            stamp();
+        }
+
+        private void stamp() {
+            loadedModified = file.lastModified();
+            loadedSize = file.length();
+        }
+    }
+
+    // --- Synthetic dataset generator ---
+    // Writes a seeded, reproducible campus in the Users/Attendance schema to either store format:
+    // the admin account setupDatabase seeds, staff spread over the subjects, and every subject marked
+    // for every student on each weekday of the term. Rows are streamed through the engine's
+    // StoreWriter, so multi-million-row stores are written in constant heap.
+    //   java -cp 'out:lib/*' AttendanceSystemUI --generate --students=5000 --term-days=90 --dir=bench
+    static class DatasetGenerator {
+
+        static final String PASSWORD_SUFFIX = "-pass";
+
+        int students = 500;
+        int staff = SUBJECT_LIST.length;
+        int subjects = SUBJECT_LIST.length;
+        int termDays = 60;
+        LocalDate termStart = LocalDate.of(2025, 1, 6);
+        // Each student's absence rate is drawn from a normal distribution, clamped to [0, 1]
+        double absenceRate = 0.12;
+        double absenceSpread = 0.08;
+        long seed = 42;
+
+        // User IDs follow addUser's numbering, so IDs added later continue the sequence
+        static String studentId(int n) {
+            return String.format("STU%03d", n);
+        }
+
+        static String studentName(int n) {
+            return "Student " + n;
+        }
+
+        // Every generated user logs in with their lower-cased ID plus "-pass"
+        static String passwordFor(String userId) {
+            return userId.toLowerCase(Locale.ROOT) + PASSWORD_SUFFIX;
+        }
+
+        // The first count weekdays from start
+        static List<LocalDate> schoolDays(LocalDate start, int count) {
+            List<LocalDate> days = new ArrayList<>(count);
+            for (LocalDate day = start; days.size() < count; day = day.plusDays(1)) {
+                if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                    days.add(day);
+                }
+            }
+            return days;
+        }
+
+        String subject(int index) {
+            return (index < SUBJECT_LIST.length) ? SUBJECT_LIST[index] : "Subject " + (index + 1);
+        }
+
+        // Replaces the engine's store with the dataset and returns the number of attendance rows
+        long writeTo(StorageEngine engine) throws IOException {
+            if (subjects < 1 || subjects > 256) {
+                throw new IllegalArgumentException("subjects must be between 1 and 256");
+            }
+            SplittableRandom random = new SplittableRandom(seed);
+            double[] studentAbsence = new double[students];
+            for (int i = 0; i < students; i++) {
+                studentAbsence[i] = Math.min(1, Math.max(0, absenceRate + absenceSpread * gaussian(random)));
+            }
+            List<User> users = new ArrayList<>(1 + staff + students);
+            users.add(new User("admin", "admin123", "Administrator", "Admin"));
+            for (int n = 1; n <= staff; n++) {
+                String id = String.format("STAFF%03d", n);
+                users.add(new User(id, passwordFor(id), "Staff " + n, "Staff", subject((n - 1) % subjects)));
+            }
+            String[] ids = new String[students];
+            for (int n = 1; n <= students; n++) {
+                ids[n - 1] = studentId(n);
+                users.add(new User(ids[n - 1], passwordFor(ids[n - 1]), studentName(n), "Student"));
+            }
+            // Salts come from their own seeded sequence, so the attendance rows do not depend on them
+            List<String> hashes = Passwords.hashAll(users.stream().map(u -> u.password).collect(Collectors.toList()), new SplittableRandom(~seed));
+            long rows = 0;
+            try (StoreWriter writer = engine.replacement()) {
+                for (int i = 0; i < users.size(); i++) {
+                    User u = users.get(i);
+                    writer.addUser(new User(u.id, hashes.get(i), u.name, u.role, u.subject));
+                }
+                // One lecture per subject per day, its rows together as markAttendance leaves them
+                for (LocalDate day : schoolDays(termStart, termDays)) {
+                    String date = day.format(GLOBAL_DATE_FORMATTER);
+                    for (int s = 0; s < subjects; s++) {
+                        String subject = subject(s);
+                        for (int i = 0; i < students; i++) {
+                            String status = (random.nextDouble() < studentAbsence[i]) ? "Absent" : "Present";
+                            writer.addAttendance(new AttendanceRecord(ids[i], date, status, subject));
+                            rows++;
+                        }
+                    }
+                }
+                writer.commit();
+            }
+            return rows;
+        }
+
+        private static double gaussian(SplittableRandom random) {
+            // Box-Muller; SplittableRandom has no nextGaussian before Java 17
+            return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        }
+
+        static void main(String[] args) {
+            DatasetGenerator generator = new DatasetGenerator();
+            File dir = new File(".");
+            String storage = "xlsx";
+            boolean force = false;
+            try {
+                for (String arg : args) {
+                    String key = arg.contains("=") ? arg.substring(0, arg.indexOf('=')) : arg;
+                    String value = arg.substring(key.length()).replaceFirst("^=", "");
+                    switch (key) {
+                        case "--students":
+                            generator.students = Integer.parseInt(value);
+                            break;
+                        case "--staff":
+                            generator.staff = Integer.parseInt(value);
+                            break;
+                        case "--subjects":
+                            generator.subjects = Integer.parseInt(value);
+                            break;
+                        case "--term-days":
+                            generator.termDays = Integer.parseInt(value);
+                            break;
+                        case "--term-start":
+                            generator.termStart = LocalDate.parse(value, GLOBAL_DATE_FORMATTER);
+                            break;
+                        case "--absence":
+                            generator.absenceRate = Double.parseDouble(value);
+                            break;
+                        case "--absence-spread":
+                            generator.absenceSpread = Double.parseDouble(value);
+                            break;
+                        case "--seed":
+                            generator.seed = Long.parseLong(value);
+                            break;
+                        case "--storage":
+                            storage = value;
+                            break;
+                        case "--dir":
+                            dir = new File(value);
+                            break;
+                        case "--force":
+                            force = true;
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Unknown option " + arg);
+                    }
+                }
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                System.err.println(e.getMessage());
+                System.err.println("Usage: AttendanceSystemUI --generate [--students=N] [--staff=N] [--subjects=N] [--term-days=N]"
+                        + " [--term-start=YYYY-MM-DD] [--absence=RATE] [--absence-spread=SD] [--seed=N]"
+                        + " [--storage=xlsx|log] [--dir=FOLDER] [--force]");
+                System.exit(2);
+            }
+            boolean log = "log".equalsIgnoreCase(storage);
+            long expectedRows = (long) generator.students * generator.subjects * generator.termDays;
+            if (!log && expectedRows >= SpreadsheetVersion.EXCEL2007.getMaxRows()) {
+                System.err.println(expectedRows + " attendance rows do not fit in one worksheet; use --storage=log.");
+                System.exit(1);
+            }
+            File target = new File(dir, log ? ExcelDataManager.LOG_FILE_NAME : ExcelDataManager.FILE_NAME);
+            if (target.exists() && !force) {
+                System.err.println(target + " already exists; pass --force to overwrite it.");
+                System.exit(1);
+            }
+            try {
+                dir.mkdirs();
+                long start = System.nanoTime();
+                long rows = generator.writeTo(ExcelDataManager.createEngine(dir, storage));
+                System.out.printf("Wrote %d users and %d attendance rows to %s in %.1f s%n", 1 + generator.staff + generator.students,
+                        rows, target, (System.nanoTime() - start) / 1e9);
+            } catch (IOException | IllegalStateException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
         }
     }
 }